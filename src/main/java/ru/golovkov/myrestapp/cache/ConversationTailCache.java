@@ -0,0 +1,187 @@
+package ru.golovkov.myrestapp.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
+import ru.golovkov.myrestapp.realtime.MessageEvent;
+import ru.golovkov.myrestapp.repository.MessageRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps the newest messages of recently read conversations in memory, so that the first page of a dialog
+ * is served without a database query. Tails are loaded on a miss and then kept up to date from committed
+ * message events. Once the estimated memory budget is exceeded, Caffeine evicts the tails used least recently
+ * and least often, which keeps the small set of hot conversations resident.
+ */
+@Component
+public class ConversationTailCache {
+
+    public static final String NAME = "conversationTails";
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "sentAt");
+    private static final Comparator<MessageResponseDto> NEWEST_FIRST_ORDER = Comparator
+            .comparing(MessageResponseDto::getSentAt)
+            .thenComparing(MessageResponseDto::getId)
+            .reversed();
+
+    private final MessageRepository messageRepository;
+    private final int tailSize;
+    private final Cache<String, Tail> tails;
+
+    public ConversationTailCache(MessageRepository messageRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.messages.tail-cache.size}") int tailSize,
+                                 @Value("${app.messages.tail-cache.max-memory}") DataSize maxMemory) {
+        this.messageRepository = messageRepository;
+        this.tailSize = tailSize;
+        this.tails = Caffeine.newBuilder()
+                .maximumWeight(maxMemory.toBytes())
+                .weigher((String conversationKey, Tail tail) -> tail.estimateSize(conversationKey))
+                .recordStats()
+                .executor(Runnable::run)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tails, NAME);
+        Gauge.builder("messages.tail-cache.hit-ratio", tails, cache -> cache.stats().hitRate())
+                .register(meterRegistry);
+        Gauge.builder("messages.tail-cache.memory", this, ConversationTailCache::getEstimatedMemory)
+                .baseUnit(BaseUnits.BYTES)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the newest page of the conversation from its cached tail, loading the tail on a miss.
+     * Only first pages sorted by {@code sentAt} descending and no larger than the tail are served.
+     */
+    public Optional<Slice<MessageResponseDto>> findNewestPage(String conversationKey, Pageable pageable) {
+        int pageSize = pageable.getPageSize();
+        if (pageable.getPageNumber() != 0 || pageSize > tailSize || !NEWEST_FIRST.equals(pageable.getSort())) {
+            return Optional.empty();
+        }
+        Tail tail = tails.get(conversationKey, this::load);
+        if (!tail.covers(pageSize)) {
+            // Deletions have shrunk the tail below the requested page, so it has to be read again.
+            tails.invalidate(conversationKey);
+            tail = tails.get(conversationKey, this::load);
+        }
+        List<MessageResponseDto> messageList = tail.messages();
+        List<MessageResponseDto> page = messageList.size() > pageSize ? messageList.subList(0, pageSize) : messageList;
+        return Optional.of(new SliceImpl<>(page, pageable, tail.hasMessagesAfter(pageSize)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        // compute() waits for a tail that is being loaded, so an event committed during the load is not lost.
+        tails.asMap().compute(event.conversationKey(), (conversationKey, tail) -> {
+            if (tail == null) {
+                return null;
+            }
+            return switch (event.type()) {
+                case CREATED -> tail.withCreated(event.message(), tailSize);
+                case UPDATED -> tail.withUpdated(event.message());
+                case DELETED -> tail.withDeleted(event.message().getId());
+            };
+        });
+    }
+
+    public long getEstimatedMemory() {
+        return tails.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    private Tail load(String conversationKey) {
+        List<MessageResponseDto> messageList = messageRepository.findLatestByConversationKey(conversationKey, tailSize + 1);
+        boolean complete = messageList.size() <= tailSize;
+        List<MessageResponseDto> newestFirst = messageList.reversed();
+        return new Tail(List.copyOf(complete ? newestFirst : newestFirst.subList(0, tailSize)), complete);
+    }
+
+    /**
+     * The newest messages of a conversation, newest first. {@code complete} means there are no older ones.
+     */
+    private record Tail(List<MessageResponseDto> messages, boolean complete) {
+
+        private static final int ENTRY_OVERHEAD = 96;
+        private static final int MESSAGE_OVERHEAD = 160;
+
+        boolean covers(int pageSize) {
+            return complete || messages.size() >= pageSize;
+        }
+
+        boolean hasMessagesAfter(int pageSize) {
+            return messages.size() > pageSize || !complete;
+        }
+
+        Tail withCreated(MessageResponseDto message, int tailSize) {
+            if (indexOf(message.getId()) >= 0) {
+                return this;
+            }
+            int index = 0;
+            while (index < messages.size() && NEWEST_FIRST_ORDER.compare(messages.get(index), message) < 0) {
+                index++;
+            }
+            if (index == messages.size() && !complete) {
+                return this;
+            }
+            List<MessageResponseDto> messageList = new ArrayList<>(messages);
+            messageList.add(index, message);
+            if (messageList.size() > tailSize) {
+                return new Tail(List.copyOf(messageList.subList(0, tailSize)), false);
+            }
+            return new Tail(List.copyOf(messageList), complete);
+        }
+
+        Tail withUpdated(MessageResponseDto message) {
+            int index = indexOf(message.getId());
+            if (index < 0) {
+                return this;
+            }
+            List<MessageResponseDto> messageList = new ArrayList<>(messages);
+            messageList.set(index, message);
+            return new Tail(List.copyOf(messageList), complete);
+        }
+
+        Tail withDeleted(Long messageId) {
+            int index = indexOf(messageId);
+            if (index < 0) {
+                return this;
+            }
+            List<MessageResponseDto> messageList = new ArrayList<>(messages);
+            messageList.remove(index);
+            return new Tail(List.copyOf(messageList), complete);
+        }
+
+        int estimateSize(String conversationKey) {
+            long size = ENTRY_OVERHEAD + 2L * conversationKey.length();
+            for (MessageResponseDto message : messages) {
+                size += MESSAGE_OVERHEAD + (message.getContent() != null ? 2L * message.getContent().length() : 0);
+            }
+            return (int) Math.min(size, Integer.MAX_VALUE);
+        }
+
+        private int indexOf(Long messageId) {
+            for (int i = 0; i < messages.size(); i++) {
+                if (messages.get(i).getId().equals(messageId)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package ru.golovkov.myrestapp.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.golovkov.myrestapp.model.dto.response.PersonSuggestionDto;
+import ru.golovkov.myrestapp.model.projection.PersonNameView;
+import ru.golovkov.myrestapp.repository.PersonRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.UnaryOperator;
+
+/**
+ * Serves name autocomplete from memory. Case-folded names are kept in sorted parallel arrays, so a prefix
+ * lookup is a binary search followed by a scan of the matches. Every change replaces the arrays as a whole:
+ * readers never lock, and people are created or renamed rarely enough for the copy to stay cheap.
+ * The index is built at startup, updated by {@code PersonServiceImpl} once its transaction commits and
+ * rebuilt periodically to pick up changes made by other nodes.
+ */
+@Slf4j
+@Component
+public class PersonNameIndex {
+
+    private final PersonRepository personRepository;
+    private final Object rebuildLock = new Object();
+    private volatile Entries entries = Entries.EMPTY;
+    private List<UnaryOperator<Entries>> changesDuringRebuild;
+
+    public PersonNameIndex(PersonRepository personRepository) {
+        this.personRepository = personRepository;
+    }
+
+    public List<PersonSuggestionDto> findByPrefix(String prefix, int limit) {
+        return entries.findByPrefix(fold(prefix), limit);
+    }
+
+    public int size() {
+        return entries.ids().length;
+    }
+
+    public void put(Long id, String name) {
+        afterCommit(() -> apply(current -> current.with(id, name)));
+    }
+
+    public void remove(Long id) {
+        afterCommit(() -> apply(current -> current.without(id)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.people.name-index.refresh-interval}",
+            fixedDelayString = "${app.people.name-index.refresh-interval}")
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                changesDuringRebuild = new ArrayList<>();
+            }
+            try {
+                Entries rebuilt = Entries.of(personRepository.findAllNames());
+                synchronized (this) {
+                    // Changes committed while the names were read may be missing from them, so they are replayed.
+                    for (UnaryOperator<Entries> change : changesDuringRebuild) {
+                        rebuilt = change.apply(rebuilt);
+                    }
+                    entries = rebuilt;
+                }
+                log.debug("Rebuilt person name index with {} names", rebuilt.ids().length);
+            } finally {
+                synchronized (this) {
+                    changesDuringRebuild = null;
+                }
+            }
+        }
+    }
+
+    private synchronized void apply(UnaryOperator<Entries> change) {
+        entries = change.apply(entries);
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(change);
+        }
+    }
+
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    private static String fold(String name) {
+        String folded = name.toLowerCase(Locale.ROOT);
+        // Most names are stored folded already; sharing the instance halves their footprint.
+        return folded.equals(name) ? name : folded;
+    }
+
+    /**
+     * Folded names, original names and ids of people, sorted by folded name and then by id.
+     */
+    private record Entries(String[] keys, String[] names, long[] ids) {
+
+        static final Entries EMPTY = new Entries(new String[0], new String[0], new long[0]);
+
+        static Entries of(List<PersonNameView> people) {
+            record Entry(String key, String name, long id) {
+            }
+            Entry[] sorted = people.stream()
+                    .filter(person -> person.getName() != null)
+                    .map(person -> new Entry(fold(person.getName()), person.getName(), person.getId()))
+                    .sorted(Comparator.comparing(Entry::key).thenComparingLong(Entry::id))
+                    .toArray(Entry[]::new);
+            String[] keys = new String[sorted.length];
+            String[] names = new String[sorted.length];
+            long[] ids = new long[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                keys[i] = sorted[i].key();
+                names[i] = sorted[i].name();
+                ids[i] = sorted[i].id();
+            }
+            return new Entries(keys, names, ids);
+        }
+
+        List<PersonSuggestionDto> findByPrefix(String prefix, int limit) {
+            List<PersonSuggestionDto> suggestions = new ArrayList<>(Math.min(limit, 16));
+            for (int i = lowerBound(prefix, Long.MIN_VALUE); i < keys.length && suggestions.size() < limit; i++) {
+                if (!keys[i].startsWith(prefix)) {
+                    break;
+                }
+                suggestions.add(new PersonSuggestionDto(ids[i], names[i]));
+            }
+            return suggestions;
+        }
+
+        Entries with(long id, String name) {
+            Entries base = without(id);
+            if (name == null) {
+                return base;
+            }
+            String key = fold(name);
+            int index = base.lowerBound(key, id);
+            int length = base.ids.length;
+            String[] newKeys = new String[length + 1];
+            String[] newNames = new String[length + 1];
+            long[] newIds = new long[length + 1];
+            System.arraycopy(base.keys, 0, newKeys, 0, index);
+            System.arraycopy(base.names, 0, newNames, 0, index);
+            System.arraycopy(base.ids, 0, newIds, 0, index);
+            newKeys[index] = key;
+            newNames[index] = name;
+            newIds[index] = id;
+            System.arraycopy(base.keys, index, newKeys, index + 1, length - index);
+            System.arraycopy(base.names, index, newNames, index + 1, length - index);
+            System.arraycopy(base.ids, index, newIds, index + 1, length - index);
+            return new Entries(newKeys, newNames, newIds);
+        }
+
+        Entries without(long id) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id) {
+                    return removeAt(i);
+                }
+            }
+            return this;
+        }
+
+        private Entries removeAt(int index) {
+            int length = ids.length;
+            String[] newKeys = Arrays.copyOf(keys, length - 1);
+            String[] newNames = Arrays.copyOf(names, length - 1);
+            long[] newIds = Arrays.copyOf(ids, length - 1);
+            System.arraycopy(keys, index + 1, newKeys, index, length - index - 1);
+            System.arraycopy(names, index + 1, newNames, index, length - index - 1);
+            System.arraycopy(ids, index + 1, newIds, index, length - index - 1);
+            return new Entries(newKeys, newNames, newIds);
+        }
+
+        /**
+         * Returns the index of the first entry that is not less than the given key and id.
+         */
+        private int lowerBound(String key, long id) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int comparison = keys[middle].compareTo(key);
+                if (comparison < 0 || comparison == 0 && ids[middle] < id) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
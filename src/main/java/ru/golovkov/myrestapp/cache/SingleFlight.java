@@ -0,0 +1,73 @@
+package ru.golovkov.myrestapp.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical loads. The first caller of a key runs the load, and callers arriving while
+ * it is in flight wait for the same result or exception instead of repeating the query. Only the insertion
+ * of the flight into the map is atomic: no lock is held while the load runs, and a finished flight is
+ * forgotten at once, so nothing is cached here.
+ */
+@Component
+public class SingleFlight {
+
+    private static final String CALLS = "single-flight.calls";
+    private static final String LOADS = "single-flight.loads";
+
+    private final ConcurrentMap<FlightKey, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public SingleFlight(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("single-flight.in-flight", flights, ConcurrentMap::size)
+                .register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String flight, Object key, Supplier<T> loader) {
+        FlightKey flightKey = new FlightKey(flight, key);
+        CompletableFuture<Object> leaderFlight = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = flights.putIfAbsent(flightKey, leaderFlight);
+        if (inFlight != null) {
+            meterRegistry.counter(CALLS, "flight", flight, "outcome", "coalesced").increment();
+            return (T) await(inFlight);
+        }
+        meterRegistry.counter(CALLS, "flight", flight, "outcome", "loaded").increment();
+        try {
+            T result = meterRegistry.timer(LOADS, "flight", flight).record(loader);
+            leaderFlight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            leaderFlight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(flightKey, leaderFlight);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            // Followers see the leader's exception, so a missing entity is reported the same way to all of them.
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record FlightKey(String flight, Object key) {
+    }
+}
@@ -0,0 +1,82 @@
+package ru.golovkov.myrestapp.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+// Caches are consulted before a transaction is started, so a hit does not take a connection from the pool.
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class CacheConfig {
+
+    public static final String MESSAGE_COUNTS = "messageCounts";
+    public static final String PERSON_COUNTS = "personCounts";
+    public static final String PERSON_DETAILS = "personDetails";
+    public static final String PERSON_PROFILES = "personProfiles";
+    public static final String PEOPLE_REGION = "people";
+    public static final String PEOPLE_BY_NAME_REGION = "peopleByName";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${app.cache.counts.ttl}") Duration countsTtl,
+                                     @Value("${app.cache.counts.max-size}") long countsMaxSize,
+                                     @Value("${app.cache.person-details.ttl}") Duration personDetailsTtl,
+                                     @Value("${app.cache.person-details.max-size}") long personDetailsMaxSize,
+                                     @Value("${app.cache.person-profiles.ttl}") Duration personProfilesTtl,
+                                     @Value("${app.cache.person-profiles.max-size}") long personProfilesMaxSize) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(MESSAGE_COUNTS, buildCache(countsTtl, countsMaxSize));
+        cacheManager.registerCustomCache(PERSON_COUNTS, buildCache(countsTtl, countsMaxSize));
+        cacheManager.registerCustomCache(PERSON_DETAILS, buildCache(personDetailsTtl, personDetailsMaxSize));
+        cacheManager.registerCustomCache(PERSON_PROFILES, buildCache(personProfilesTtl, personProfilesMaxSize));
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    /**
+     * Regions of the Hibernate second-level cache. The provider instance is not shared through
+     * {@code Caching}, so every application context gets regions of its own.
+     */
+    @Bean(destroyMethod = "close")
+    public javax.cache.CacheManager hibernateCacheManager(@Value("${app.cache.people-region.ttl}") Duration peopleTtl,
+                                                          @Value("${app.cache.people-region.max-size}") long peopleMaxSize) {
+        javax.cache.CacheManager cacheManager = new CaffeineCachingProvider().getCacheManager();
+        cacheManager.createCache(PEOPLE_REGION, buildRegion(peopleTtl, peopleMaxSize));
+        cacheManager.createCache(PEOPLE_BY_NAME_REGION, buildRegion(peopleTtl, peopleMaxSize));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(javax.cache.CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private CaffeineConfiguration<Object, Object> buildRegion(Duration ttl, long maxSize) {
+        // Hibernate stores disassembled state, so entries need not be copied on every read.
+        return new CaffeineConfiguration<>()
+                .setExpireAfterWrite(OptionalLong.of(ttl.toNanos()))
+                .setMaximumSize(OptionalLong.of(maxSize))
+                .setStoreByValue(false)
+                .setStatisticsEnabled(true);
+    }
+
+    private Cache<Object, Object> buildCache(Duration ttl, long maxSize) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+}
@@ -1,5 +1,7 @@
 package ru.golovkov.myrestapp.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -17,6 +19,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import ru.golovkov.myrestapp.model.entity.UserRole;
+import ru.golovkov.myrestapp.security.BoundedPasswordEncoder;
 import ru.golovkov.myrestapp.security.CustomAuthenticationEntryPoint;
 import ru.golovkov.myrestapp.security.JwtFilter;
 import ru.golovkov.myrestapp.service.PersonDetailsService;
@@ -39,6 +42,7 @@ public class SecurityConfig {
         return http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(requests -> requests
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 baseUrl + "/public/**",
                                 "/css/**",
@@ -46,9 +50,10 @@ public class SecurityConfig {
                                 "/error",
                                 "/v3/api-docs/**",
                                 "/swagger-ui/**",
-                                "/swagger-ui.html"
+                                "/swagger-ui.html",
+                                "/actuator/health"
                         ).permitAll()
-                        .requestMatchers(baseUrl + "/admin/**")
+                        .requestMatchers(baseUrl + "/admin/**", "/actuator/**")
                         .hasRole(UserRole.ROLE_ADMIN.name())
                         .anyRequest()
                         .authenticated()
@@ -69,8 +74,10 @@ public class SecurityConfig {
 
 
     @Bean
-    public PasswordEncoder getPasswordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder getPasswordEncoder(@Value("${app.password-hashing.pool-size}") int poolSize,
+                                              @Value("${app.password-hashing.queue-capacity}") int queueCapacity,
+                                              MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), poolSize, queueCapacity, meterRegistry);
     }
 
     @Bean
@@ -24,7 +24,6 @@ import ru.golovkov.myrestapp.model.dto.request.PersonAuthRequestDto;
 import ru.golovkov.myrestapp.model.dto.request.PersonRequestDto;
 import ru.golovkov.myrestapp.model.dto.response.JwtResponseDto;
 import ru.golovkov.myrestapp.model.dto.response.PersonResponseDto;
-import ru.golovkov.myrestapp.model.entity.Person;
 import ru.golovkov.myrestapp.security.JwtUtil;
 import ru.golovkov.myrestapp.security.PersonDetails;
 import ru.golovkov.myrestapp.service.PersonService;
@@ -48,7 +47,7 @@ public class AccountController {
                     description = "Авторизованный пользователь",
                     content = {@Content(
                             mediaType = MediaType.APPLICATION_JSON_VALUE,
-                            schema = @Schema(implementation = Person.class)
+                            schema = @Schema(implementation = PersonResponseDto.class)
                     )}
             ),
             @ApiResponse(
@@ -60,8 +59,8 @@ public class AccountController {
                     )}
             )
     })
-    public Person getCurrentUser(@AuthenticationPrincipal PersonDetails personDetails) {
-        return personDetails.getPerson();
+    public PersonResponseDto getCurrentUser(@AuthenticationPrincipal PersonDetails personDetails) {
+        return personService.getById(personDetails.getPerson().getId());
     }
 
     @SneakyThrows
@@ -74,7 +73,7 @@ public class AccountController {
                     description = "Успешно изменённые данные",
                     content = {@Content(
                             mediaType = MediaType.APPLICATION_JSON_VALUE,
-                            schema = @Schema(implementation = PersonResponseDto.class)
+                            schema = @Schema(implementation = JwtResponseDto.class)
                     )}
             ),
             @ApiResponse(
@@ -88,16 +87,7 @@ public class AccountController {
     })
     public JwtResponseDto updateCurrentUser(@AuthenticationPrincipal PersonDetails personDetails,
                                             @RequestBody PersonRequestDto personRequestDto) {
-        if (personRequestDto.getPassword() == null) {
-            throw new WrongPasswordException("Correct password is required to update user data");
-        }
-        personService.updateById(personRequestDto, personDetails.getPerson().getId());
-        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                personRequestDto.getName(),
-                personRequestDto.getPassword()
-        );
-        verifyCredentials(authToken);
-        return new JwtResponseDto(jwtUtil.generateToken(personRequestDto.getName()));
+        return personService.updateByIdAndIssueToken(personRequestDto, personDetails.getPerson().getId());
     }
 
     @PostMapping(value = "/public/login")
@@ -125,8 +115,8 @@ public class AccountController {
                 personAuthRequestDto.getName(),
                 personAuthRequestDto.getPassword()
         );
-        verifyCredentials(authToken);
-        return new JwtResponseDto(jwtUtil.generateToken(personAuthRequestDto.getName()));
+        PersonDetails personDetails = verifyCredentials(authToken);
+        return new JwtResponseDto(jwtUtil.generateToken(personDetails.getPerson()));
     }
 
     @PostMapping("/public/registration")
@@ -143,9 +133,9 @@ public class AccountController {
         return personService.create(personRequestDto);
     }
 
-    private void verifyCredentials(UsernamePasswordAuthenticationToken authToken) {
+    private PersonDetails verifyCredentials(UsernamePasswordAuthenticationToken authToken) {
         try {
-            authenticationManager.authenticate(authToken);
+            return (PersonDetails) authenticationManager.authenticate(authToken).getPrincipal();
         } catch (BadCredentialsException e) {
             throw new WrongPasswordException("Incorrect credentials");
         }
@@ -1,5 +1,7 @@
 package ru.golovkov.myrestapp.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -8,23 +10,38 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import lombok.AllArgsConstructor;
 import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.golovkov.myrestapp.exception.ExceptionDetails;
 import ru.golovkov.myrestapp.exception.entity.MessageNotFoundException;
-import ru.golovkov.myrestapp.exception.httpcommon.ForbiddenException;
 import ru.golovkov.myrestapp.exception.httpcommon.UnauthorizedException;
+import ru.golovkov.myrestapp.model.dto.MessageSubmission;
+import ru.golovkov.myrestapp.model.dto.request.MessageBulkItemRequestDto;
 import ru.golovkov.myrestapp.model.dto.request.MessageRequestDto;
 import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.MessageScrollResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.MessageSinceResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.MessageSyncResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.SliceResponseDto;
+import ru.golovkov.myrestapp.realtime.MessageStreamHub;
 import ru.golovkov.myrestapp.security.PersonDetails;
 import ru.golovkov.myrestapp.service.MessageService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("${app.messages-url}")
@@ -33,6 +50,8 @@ import java.util.List;
 public class MessageController {
 
     private final MessageService messageService;
+    private final MessageStreamHub messageStreamHub;
+    private final ObjectMapper objectMapper;
 
     @Operation(summary = "Отправка сообщения")
     @ApiResponse(
@@ -43,14 +62,101 @@ public class MessageController {
                     mediaType = MediaType.APPLICATION_JSON_VALUE
             )}
     )
+    @ApiResponse(
+            responseCode = "202",
+            description = "Сообщение принято и будет записано позже (durable=false при включённой отложенной записи)",
+            content = {@Content(
+                    schema = @Schema(implementation = MessageResponseDto.class),
+                    mediaType = MediaType.APPLICATION_JSON_VALUE
+            )}
+    )
+    @ApiResponse(
+            responseCode = "503",
+            description = "Очередь записи сообщений переполнена",
+            content = {@Content(
+                    schema = @Schema(implementation = ExceptionDetails.class),
+                    mediaType = MediaType.APPLICATION_JSON_VALUE
+            )}
+    )
     @PostMapping("/{receiverId}")
-    @ResponseStatus(HttpStatus.CREATED)
-    public MessageResponseDto postMessage(@PathVariable Long receiverId,
-                                          @RequestBody String content,
-                                          @AuthenticationPrincipal PersonDetails personDetails) {
+    public ResponseEntity<MessageResponseDto> postMessage(@PathVariable Long receiverId,
+                                                          @RequestBody String content,
+                                                          @RequestParam(defaultValue = "true") boolean durable,
+                                                          @AuthenticationPrincipal PersonDetails personDetails) {
         Long principalId = personDetails.getPerson().getId();
         MessageRequestDto messageRequestDto = new MessageRequestDto(content, principalId, receiverId);
-        return messageService.create(messageRequestDto);
+        MessageSubmission messageSubmission = messageService.submit(messageRequestDto, durable);
+        return ResponseEntity
+                .status(messageSubmission.persisted() ? HttpStatus.CREATED : HttpStatus.ACCEPTED)
+                .body(messageSubmission.message());
+    }
+
+    @Operation(summary = "Массовая отправка сообщений")
+    @ApiResponse(
+            responseCode = "201",
+            description = "Сообщения успешно отправлены",
+            content = {@Content(
+                    array = @ArraySchema(schema = @Schema(implementation = MessageResponseDto.class)),
+                    mediaType = MediaType.APPLICATION_JSON_VALUE
+            )}
+    )
+    @PostMapping("/bulk")
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<MessageResponseDto> postMessages(@RequestBody List<MessageBulkItemRequestDto> messages,
+                                                 @AuthenticationPrincipal PersonDetails personDetails) {
+        Long principalId = personDetails.getPerson().getId();
+        List<MessageRequestDto> messageRequestDtoList = messages.stream()
+                .map(message -> new MessageRequestDto(message.getContent(), principalId, message.getReceiverId()))
+                .toList();
+        return messageService.createAll(messageRequestDtoList);
+    }
+
+    @Operation(summary = "Подписка на новые, изменённые и удалённые сообщения текущего пользователя (SSE)")
+    @ApiResponse(
+            responseCode = "200",
+            description = "Поток событий message-created, message-updated и message-deleted",
+            content = {@Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)}
+    )
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getMessageStream(@AuthenticationPrincipal PersonDetails personDetails) {
+        return messageStreamHub.subscribe(personDetails.getPerson().getId());
+    }
+
+    @Operation(summary = "Ожидание новых и изменённых сообщений диалога после курсора (long polling)")
+    @ApiResponse(
+            responseCode = "200",
+            description = "Сообщения диалога в порядке фиксации изменений и курсор для следующего запроса; " +
+                    "без курсора ожидаются изменения, зафиксированные после запроса",
+            content = {@Content(
+                    schema = @Schema(implementation = MessageSinceResponseDto.class),
+                    mediaType = MediaType.APPLICATION_JSON_VALUE
+            )}
+    )
+    @GetMapping("/with/{senderId}/since")
+    public CompletableFuture<MessageSinceResponseDto> getMessageListWithSenderSince(@PathVariable Long senderId,
+                                                                                   @RequestParam(required = false) String cursor,
+                                                                                   @RequestParam(defaultValue = "25s") String wait,
+                                                                                   @AuthenticationPrincipal PersonDetails personDetails) {
+        Long principalId = personDetails.getPerson().getId();
+        return messageService.getListWithSenderSince(principalId, senderId, cursor, DurationStyle.detectAndParse(wait));
+    }
+
+    @Operation(summary = "Синхронизация диалога: изменения после токена синхронизации")
+    @ApiResponse(
+            responseCode = "200",
+            description = "Новые и изменённые сообщения, ID удалённых сообщений и следующий токен",
+            content = {@Content(
+                    schema = @Schema(implementation = MessageSyncResponseDto.class),
+                    mediaType = MediaType.APPLICATION_JSON_VALUE
+            )}
+    )
+    @GetMapping("/with/{senderId}/sync")
+    public MessageSyncResponseDto getMessageChangesWithSenderByIds(@PathVariable Long senderId,
+                                                                   @RequestParam(required = false) String token,
+                                                                   @RequestParam(defaultValue = "500") int size,
+                                                                   @AuthenticationPrincipal PersonDetails personDetails) {
+        Long principalId = personDetails.getPerson().getId();
+        return messageService.getChangesWithSenderByIds(principalId, senderId, token, size);
     }
 
     @Operation(summary = "Получение диалога с другим пользователем")
@@ -58,17 +164,78 @@ public class MessageController {
             responseCode = "200",
             description = "Список сообщений текущего пользователя с другим",
             content = {@Content(
-                    array = @ArraySchema(schema = @Schema(implementation = MessageResponseDto.class)),
+                    schema = @Schema(implementation = SliceResponseDto.class),
                     mediaType = MediaType.APPLICATION_JSON_VALUE
             )}
     )
     @GetMapping("/with/{senderId}")
-    public List<MessageResponseDto> getMessageListWithSenderByIds(@PathVariable Long senderId,
-                                                                  @AuthenticationPrincipal PersonDetails personDetails,
-                                                                  @ParameterObject @PageableDefault(sort = "sentAt",
-                                                                          direction = Sort.Direction.DESC) Pageable pageable) {
+    public SliceResponseDto<MessageResponseDto> getMessageListWithSenderByIds(@PathVariable Long senderId,
+                                                                              @RequestParam(defaultValue = "false") boolean withTotal,
+                                                                              @AuthenticationPrincipal PersonDetails personDetails,
+                                                                              @ParameterObject @PageableDefault(sort = "sentAt",
+                                                                                      direction = Sort.Direction.DESC) Pageable pageable) {
         Long principalId = personDetails.getPerson().getId();
-        return messageService.getListWithSenderByIds(principalId, senderId, pageable).reversed();
+        SliceResponseDto<MessageResponseDto> messageSlice =
+                messageService.getListWithSenderByIds(principalId, senderId, withTotal, pageable);
+        messageSlice.setContent(messageSlice.getContent().reversed());
+        return messageSlice;
+    }
+
+    @Operation(summary = "Экспорт всего диалога с другим пользователем (NDJSON)")
+    @ApiResponse(
+            responseCode = "200",
+            description = "Все сообщения диалога в порядке отправки, по одному JSON-объекту на строку",
+            content = {@Content(
+                    schema = @Schema(implementation = MessageResponseDto.class),
+                    mediaType = MediaType.APPLICATION_NDJSON_VALUE
+            )}
+    )
+    @GetMapping(path = "/with/{senderId}/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportMessagesWithSenderByIds(@PathVariable Long senderId,
+                                                                               @AuthenticationPrincipal PersonDetails personDetails) {
+        Long principalId = personDetails.getPerson().getId();
+        ObjectWriter messageWriter = objectMapper.writerFor(MessageResponseDto.class);
+        StreamingResponseBody body = outputStream -> {
+            try {
+                messageService.exportWithSenderByIds(principalId, senderId, message -> {
+                    try {
+                        outputStream.write(messageWriter.writeValueAsBytes(message));
+                        outputStream.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                // The client has disconnected; the message stream and its transaction are already closed.
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(STR."messages-with-\{senderId}.ndjson")
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    @Operation(summary = "Получение диалога с другим пользователем по курсору")
+    @ApiResponse(
+            responseCode = "200",
+            description = "Страница сообщений диалога в порядке отправки и курсор следующей страницы; " +
+                    "за концом прокрутки страница пуста",
+            content = {@Content(
+                    schema = @Schema(implementation = MessageScrollResponseDto.class),
+                    mediaType = MediaType.APPLICATION_JSON_VALUE
+            )}
+    )
+    @GetMapping("/with/{senderId}/scroll")
+    public MessageScrollResponseDto getMessageScrollWithSenderByIds(@PathVariable Long senderId,
+                                                                    @RequestParam(required = false) String before,
+                                                                    @RequestParam(required = false) String after,
+                                                                    @RequestParam(defaultValue = "20") int size,
+                                                                    @AuthenticationPrincipal PersonDetails personDetails) {
+        Long principalId = personDetails.getPerson().getId();
+        return messageService.getScrollWithSenderByIds(principalId, senderId, before, after, size);
     }
 
     @Operation(summary = "Обновление сообщения по ID")
@@ -117,15 +284,7 @@ public class MessageController {
     @DeleteMapping("/{id}")
     public MessageResponseDto deleteMessageById(@PathVariable Long id,
                                                 @AuthenticationPrincipal PersonDetails personDetails) {
-        Long principalId = personDetails.getPerson().getId();
-        MessageResponseDto messageResponseDto = messageService.getById(id);
-        if (!messageResponseDto.getSenderId().equals(principalId)) {
-            throw new ForbiddenException(STR
-                    ."Another sender's messages aren't available for deleting! Current user's ID: \{
-                    principalId}, sender's ID: \{messageResponseDto.getSenderId()})}");
-        }
-        messageService.deleteById(id);
-        return messageResponseDto;
+        return messageService.deleteById(id, personDetails.getPerson().getId());
     }
 
     @ApiResponse(
@@ -1,7 +1,6 @@
 package ru.golovkov.myrestapp.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
-import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -18,12 +17,12 @@ import ru.golovkov.myrestapp.exception.ExceptionDetails;
 import ru.golovkov.myrestapp.exception.entity.MessageNotFoundException;
 import ru.golovkov.myrestapp.exception.entity.MessageOperationForbiddenException;
 import ru.golovkov.myrestapp.exception.httpcommon.UnauthorizedException;
+import ru.golovkov.myrestapp.model.dto.request.MessageSearchMode;
 import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.SliceResponseDto;
 import ru.golovkov.myrestapp.security.PersonDetails;
 import ru.golovkov.myrestapp.service.MessageService;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("${app.messages-url}")
 @SecurityRequirement(name = "Authorization")
@@ -63,16 +62,17 @@ public class MessageSearchController {
             responseCode = "200",
             description = "Успешно полученный список сообщений от другого пользователя",
             content = {@Content(
-                    array = @ArraySchema(schema = @Schema(implementation = MessageResponseDto.class)),
+                    schema = @Schema(implementation = SliceResponseDto.class),
                     mediaType = MediaType.APPLICATION_JSON_VALUE
             )}
     )
     @GetMapping("/from/{senderId}")
-    public List<MessageResponseDto> getMessageListFromSenderById(@PathVariable Long senderId,
-                                                                 @AuthenticationPrincipal PersonDetails personDetails,
-                                                                 @ParameterObject @PageableDefault Pageable pageable) {
+    public SliceResponseDto<MessageResponseDto> getMessageListFromSenderById(@PathVariable Long senderId,
+                                                                             @RequestParam(defaultValue = "false") boolean withTotal,
+                                                                             @AuthenticationPrincipal PersonDetails personDetails,
+                                                                             @ParameterObject @PageableDefault Pageable pageable) {
         Long principalId = personDetails.getPerson().getId();
-        return messageService.getListFromSenderById(principalId, senderId, pageable);
+        return messageService.getListFromSenderById(principalId, senderId, withTotal, pageable);
     }
 
     @Operation(summary = "Получение сообщений от другого пользователя по содержанию")
@@ -80,17 +80,18 @@ public class MessageSearchController {
             responseCode = "200",
             description = "Успешно полученные сообщения от другого пользователя по содержанию",
             content = {@Content(
-                    array = @ArraySchema(schema = @Schema(implementation = MessageResponseDto.class)),
+                    schema = @Schema(implementation = SliceResponseDto.class),
                     mediaType = MediaType.APPLICATION_JSON_VALUE
             )}
     )
     @GetMapping("/search-from/{senderId}")
-    public List<MessageResponseDto> getMessageListFromSenderByIdAndContent(@PathVariable Long senderId,
-                                                                           @RequestParam String content,
-                                                                           @AuthenticationPrincipal PersonDetails personDetails,
-                                                                           @ParameterObject @PageableDefault Pageable pageable) {
+    public SliceResponseDto<MessageResponseDto> getMessageListFromSenderByIdAndContent(@PathVariable Long senderId,
+                                                                                       @RequestParam String content,
+                                                                                       @RequestParam(defaultValue = "SUBSTRING") MessageSearchMode mode,
+                                                                                       @AuthenticationPrincipal PersonDetails personDetails,
+                                                                                       @ParameterObject @PageableDefault Pageable pageable) {
         Long principalId = personDetails.getPerson().getId();
-        return messageService.getListFromSenderByIdAndContent(principalId, senderId, content, pageable);
+        return messageService.getListFromSenderByIdAndContent(principalId, senderId, content, mode, pageable);
     }
 
     @Operation(summary = "Получение сообщений диалога с другим пользователем по содержанию")
@@ -98,17 +99,18 @@ public class MessageSearchController {
             responseCode = "200",
             description = "Успешно полученные сообщения диалога с другим пользователем по содержанию",
             content = {@Content(
-                    array = @ArraySchema(schema = @Schema(implementation = MessageResponseDto.class)),
+                    schema = @Schema(implementation = SliceResponseDto.class),
                     mediaType = MediaType.APPLICATION_JSON_VALUE
             )}
     )
     @GetMapping("/search-with/{senderId}")
-    public List<MessageResponseDto> getMessageListWithSenderByIdsAndContent(@PathVariable Long senderId,
-                                                                            @RequestParam String content,
-                                                                            @AuthenticationPrincipal PersonDetails personDetails,
-                                                                            @ParameterObject @PageableDefault Pageable pageable) {
+    public SliceResponseDto<MessageResponseDto> getMessageListWithSenderByIdsAndContent(@PathVariable Long senderId,
+                                                                                        @RequestParam String content,
+                                                                                        @RequestParam(defaultValue = "SUBSTRING") MessageSearchMode mode,
+                                                                                        @AuthenticationPrincipal PersonDetails personDetails,
+                                                                                        @ParameterObject @PageableDefault Pageable pageable) {
         Long principalId = personDetails.getPerson().getId();
-        return messageService.getListWithSenderByIdsAndContent(principalId, senderId, content, pageable);
+        return messageService.getListWithSenderByIdsAndContent(principalId, senderId, content, mode, pageable);
     }
 
     private void throwExceptionIfPrincipalIsNotSender(MessageResponseDto messageResponseDto, Long principalId) {
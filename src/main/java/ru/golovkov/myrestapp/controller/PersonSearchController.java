@@ -19,6 +19,8 @@ import ru.golovkov.myrestapp.exception.entity.PersonNotFoundException;
 import ru.golovkov.myrestapp.exception.httpcommon.BadRequestException;
 import ru.golovkov.myrestapp.exception.httpcommon.UnauthorizedException;
 import ru.golovkov.myrestapp.model.dto.response.PersonResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.PersonSuggestionDto;
+import ru.golovkov.myrestapp.model.dto.response.SliceResponseDto;
 import ru.golovkov.myrestapp.service.PersonService;
 
 import java.util.List;
@@ -37,14 +39,30 @@ public class PersonSearchController {
             description = "Список пользователей",
             content = {@Content(
                     mediaType = MediaType.APPLICATION_JSON_VALUE,
-                    array = @ArraySchema(schema = @Schema(implementation = PersonResponseDto.class))
+                    schema = @Schema(implementation = SliceResponseDto.class)
             )}
     )
     @GetMapping("")
-    public List<PersonResponseDto> getPersonList(@RequestParam(name = "nameToSearch", required = false, defaultValue = "") String name,
-                                                 @ParameterObject @PageableDefault(direction = Sort.Direction.ASC, sort = "name") Pageable pageable
+    public SliceResponseDto<PersonResponseDto> getPersonList(@RequestParam(name = "nameToSearch", required = false, defaultValue = "") String name,
+                                                             @RequestParam(defaultValue = "false") boolean withTotal,
+                                                             @ParameterObject @PageableDefault(direction = Sort.Direction.ASC, sort = "name") Pageable pageable
     ) {
-        return personService.getAllByNameContaining(name, pageable);
+        return personService.getAllByNameContaining(name, withTotal, pageable);
+    }
+
+    @Operation(summary = "Подсказки имён пользователей по началу имени")
+    @ApiResponse(
+            responseCode = "200",
+            description = "Пользователи, имя которых начинается с указанной строки, без учёта регистра",
+            content = {@Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    array = @ArraySchema(schema = @Schema(implementation = PersonSuggestionDto.class))
+            )}
+    )
+    @GetMapping("/suggest")
+    public List<PersonSuggestionDto> suggestPersonNames(@RequestParam String prefix,
+                                                        @RequestParam(defaultValue = "10") int limit) {
+        return personService.suggestByNamePrefix(prefix, limit);
     }
 
     @Operation(summary = "Получение пользователя по ID")
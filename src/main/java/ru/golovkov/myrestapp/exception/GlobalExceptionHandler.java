@@ -2,6 +2,7 @@ package ru.golovkov.myrestapp.exception;
 
 import io.swagger.v3.oas.annotations.Hidden;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -12,6 +13,7 @@ import ru.golovkov.myrestapp.exception.entity.PersonNotFoundException;
 import ru.golovkov.myrestapp.exception.entity.WrongPasswordException;
 import ru.golovkov.myrestapp.exception.httpcommon.BadRequestException;
 import ru.golovkov.myrestapp.exception.httpcommon.ForbiddenException;
+import ru.golovkov.myrestapp.exception.httpcommon.ServiceUnavailableException;
 
 @Hidden
 @RestControllerAdvice
@@ -45,6 +47,14 @@ public class GlobalExceptionHandler {
         return new ExceptionDetails(e.toString());
     }
 
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ExceptionDetails> handleServiceUnavailableException(ServiceUnavailableException e) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ExceptionDetails(e.toString()));
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<ExceptionDetails> handleRuntimeException(RuntimeException e) {
         if (e.getCause() instanceof PersonNotFoundException personNotFoundException) {
@@ -0,0 +1,33 @@
+package ru.golovkov.myrestapp.job;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.golovkov.myrestapp.repository.MessageRepository;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConversationKeyBackfillJob {
+
+    private final MessageRepository messageRepository;
+
+    @Value("${app.messages.conversation-key-backfill.batch-size}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillConversationKeys() {
+        long total = 0;
+        int updated;
+        do {
+            updated = messageRepository.backfillConversationKeys(batchSize);
+            total += updated;
+        } while (updated > 0);
+        if (total > 0) {
+            log.info("Backfilled conversation keys for {} messages", total);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.golovkov.myrestapp.job;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.golovkov.myrestapp.repository.MessageRepository;
+import ru.golovkov.myrestapp.repository.PersonRepository;
+import ru.golovkov.myrestapp.service.MessageService;
+
+import java.util.List;
+
+/**
+ * Removes soft-deleted people together with their sent and received messages. Messages are soft-deleted
+ * in batches, each in its own transaction, so that their deletions reach stream and sync clients like any
+ * other; {@link MessageTombstoneCompactionJob} removes the tombstones later, and only then is the person purged.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeletedPersonPurgeJob {
+
+    private final PersonRepository personRepository;
+    private final MessageRepository messageRepository;
+    private final MessageService messageService;
+
+    @Value("${app.people.purge.batch-size}")
+    private int batchSize;
+
+    @Scheduled(initialDelayString = "${app.people.purge.interval}",
+            fixedDelayString = "${app.people.purge.interval}")
+    public void purgeDeletedPeople() {
+        long afterId = 0;
+        List<Long> personIdList;
+        do {
+            personIdList = personRepository.findSoftDeletedIds(afterId, batchSize);
+            personIdList.forEach(this::purge);
+            if (!personIdList.isEmpty()) {
+                afterId = personIdList.getLast();
+            }
+        } while (personIdList.size() == batchSize);
+    }
+
+    private void purge(Long personId) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = messageService.deleteByPersonId(personId, batchSize);
+            total += deleted;
+        } while (deleted > 0);
+        if (total > 0) {
+            log.info("Deleted {} messages of deleted person {}", total, personId);
+        }
+        if (messageRepository.existsByPersonIdIncludingDeleted(personId)) {
+            log.debug("Person {} still has message tombstones, purge postponed", personId);
+            return;
+        }
+        try {
+            personRepository.purgeSoftDeletedById(personId);
+        } catch (DataIntegrityViolationException e) {
+            // A message to the person was committed after the last batch; the next run picks it up.
+            log.debug("Person {} still has messages, purge postponed", personId);
+            return;
+        }
+        log.info("Purged deleted person {}", personId);
+    }
+}
@@ -0,0 +1,40 @@
+package ru.golovkov.myrestapp.job;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.golovkov.myrestapp.repository.MessageRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MessageTombstoneCompactionJob {
+
+    private final MessageRepository messageRepository;
+
+    @Value("${app.messages.tombstones.retention}")
+    private Duration retention;
+
+    @Value("${app.messages.tombstones.compaction-batch-size}")
+    private int batchSize;
+
+    @Scheduled(initialDelayString = "${app.messages.tombstones.compaction-interval}",
+            fixedDelayString = "${app.messages.tombstones.compaction-interval}")
+    public void compactTombstones() {
+        LocalDateTime deletedBefore = LocalDateTime.now().minus(retention);
+        long total = 0;
+        int deleted;
+        do {
+            deleted = messageRepository.purgeTombstones(deletedBefore, batchSize);
+            total += deleted;
+        } while (deleted > 0);
+        if (total > 0) {
+            log.info("Purged {} message tombstones deleted before {}", total, deletedBefore);
+        }
+    }
+}
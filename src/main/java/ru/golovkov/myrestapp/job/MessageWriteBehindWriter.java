@@ -0,0 +1,196 @@
+package ru.golovkov.myrestapp.job;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.golovkov.myrestapp.exception.httpcommon.ServiceUnavailableException;
+import ru.golovkov.myrestapp.model.entity.Message;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.messages.write-behind.enabled", havingValue = "true")
+public class MessageWriteBehindWriter implements DisposableBean {
+
+    private static final String METRIC_NAME = "messages.write-behind";
+    private static final String INSERT_SQL = """
+            INSERT INTO messages (id, content, sent_at, sender_id, receiver_id, conversation_key)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+    // Same ordered locking as MessageRepository.lockConversations.
+    private static final String LOCK_CONVERSATIONS_SQL = """
+            SELECT count(*) FROM (
+                SELECT pg_advisory_xact_lock(lock_id) FROM (
+                    SELECT DISTINCT hashtext(conversation_key) AS lock_id
+                    FROM unnest(CAST(? AS TEXT[])) AS conversation_key
+                    ORDER BY lock_id) lock_ids) locks
+            """;
+    private static final String NEXT_ID_BLOCK_SQL = "SELECT nextval('messages_seq')";
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingMessage> queue;
+    private final int batchSize;
+    private final Duration maxDelay;
+    private final Duration shutdownTimeout;
+    private final Timer flushTimer;
+    private final DistributionSummary groupSizeSummary;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    private long nextId;
+    private long lastIdInBlock = -1;
+
+    public MessageWriteBehindWriter(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.messages.write-behind.queue-capacity}") int queueCapacity,
+                                    @Value("${app.messages.write-behind.batch-size}") int batchSize,
+                                    @Value("${app.messages.write-behind.max-delay}") Duration maxDelay,
+                                    @Value("${app.messages.write-behind.shutdown-timeout}") Duration shutdownTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxDelay = maxDelay;
+        this.shutdownTimeout = shutdownTimeout;
+        Gauge.builder(METRIC_NAME + ".queued", queue, BlockingQueue::size).register(meterRegistry);
+        this.flushTimer = Timer.builder(METRIC_NAME + ".flush").register(meterRegistry);
+        this.groupSizeSummary = DistributionSummary.builder(METRIC_NAME + ".group.size").register(meterRegistry);
+        this.writerThread = Thread.ofPlatform()
+                .name("message-write-behind")
+                .daemon()
+                .start(this::drainQueue);
+    }
+
+    /**
+     * Assigns the message an id from the messages sequence and queues it for the writer thread.
+     * The returned future completes once the group containing the message has been committed.
+     */
+    public synchronized CompletableFuture<Message> submit(Message message) {
+        if (!running) {
+            throw new ServiceUnavailableException("Message writer is shutting down, try again later");
+        }
+        if (queue.remainingCapacity() == 0) {
+            throw new ServiceUnavailableException("Too many pending messages, try again later");
+        }
+        message.setId(allocateId());
+        PendingMessage pendingMessage = new PendingMessage(message, new CompletableFuture<>());
+        queue.add(pendingMessage);
+        return pendingMessage.written();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        writerThread.join(shutdownTimeout.toMillis());
+        List<PendingMessage> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(pendingMessage -> pendingMessage.written()
+                .completeExceptionally(new ServiceUnavailableException("Message writer was stopped before the message was written")));
+    }
+
+    private long allocateId() {
+        if (nextId > lastIdInBlock) {
+            lastIdInBlock = jdbcTemplate.queryForObject(NEXT_ID_BLOCK_SQL, Long.class);
+            nextId = lastIdInBlock - Message.ID_ALLOCATION_SIZE + 1;
+        }
+        return nextId++;
+    }
+
+    private void drainQueue() {
+        List<PendingMessage> group = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMessage first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + maxDelay.toNanos();
+                while (group.size() < batchSize) {
+                    queue.drainTo(group, batchSize - group.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (group.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                writeGroup(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                group.forEach(pendingMessage -> pendingMessage.written().completeExceptionally(e));
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void writeGroup(List<PendingMessage> group) {
+        groupSizeSummary.record(group.size());
+        try {
+            flushTimer.record(() -> insert(group));
+            group.forEach(pendingMessage -> pendingMessage.written().complete(pendingMessage.message()));
+        } catch (RuntimeException groupException) {
+            if (group.size() == 1) {
+                group.getFirst().written().completeExceptionally(groupException);
+                return;
+            }
+            log.warn("Group commit of {} messages failed, retrying them one by one", group.size(), groupException);
+            for (PendingMessage pendingMessage : group) {
+                try {
+                    insert(List.of(pendingMessage));
+                    pendingMessage.written().complete(pendingMessage.message());
+                } catch (RuntimeException e) {
+                    pendingMessage.written().completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void insert(List<PendingMessage> group) {
+        List<Object[]> batchArgs = group.stream()
+                .map(PendingMessage::message)
+                .map(message -> new Object[]{
+                        message.getId(),
+                        message.getContent(),
+                        Timestamp.valueOf(message.getSentAt()),
+                        message.getSender().getId(),
+                        message.getReceiver().getId(),
+                        message.getConversationKey()
+                })
+                .toList();
+        String[] conversationKeys = group.stream()
+                .map(pendingMessage -> pendingMessage.message().getConversationKey())
+                .toArray(String[]::new);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject(LOCK_CONVERSATIONS_SQL, Long.class, (Object) conversationKeys);
+            jdbcTemplate.batchUpdate(INSERT_SQL, batchArgs);
+        });
+    }
+
+    private record PendingMessage(Message message, CompletableFuture<Message> written) {
+    }
+}
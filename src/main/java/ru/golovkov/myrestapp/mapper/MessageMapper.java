@@ -4,6 +4,7 @@ import org.mapstruct.*;
 import ru.golovkov.myrestapp.model.dto.request.MessageRequestDto;
 import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
 import ru.golovkov.myrestapp.model.entity.Message;
+import ru.golovkov.myrestapp.model.projection.MessageView;
 
 import java.util.List;
 
@@ -19,5 +20,9 @@ public interface MessageMapper {
 
     List<MessageResponseDto> entityListToResponseDtoList(List<Message> entityList);
 
+    MessageResponseDto viewToResponseDto(MessageView view);
+
+    List<MessageResponseDto> viewListToResponseDtoList(List<MessageView> viewList);
+
     void updateEntityFromRequestDto(@MappingTarget Message entity, MessageRequestDto requestDto);
 }
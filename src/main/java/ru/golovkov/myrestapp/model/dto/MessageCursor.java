@@ -0,0 +1,32 @@
+package ru.golovkov.myrestapp.model.dto;
+
+import ru.golovkov.myrestapp.exception.httpcommon.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+public record MessageCursor(LocalDateTime sentAt, Long id) {
+
+    private static final String SEPARATOR = "|";
+
+    public static MessageCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = decoded.lastIndexOf(SEPARATOR);
+            return new MessageCursor(
+                    LocalDateTime.parse(decoded.substring(0, separatorIndex)),
+                    Long.parseLong(decoded.substring(separatorIndex + 1))
+            );
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BadRequestException(STR."Invalid message cursor '\{cursor}'");
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((sentAt + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,24 @@
+package ru.golovkov.myrestapp.model.dto;
+
+import ru.golovkov.myrestapp.exception.httpcommon.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public record MessageSinceCursor(long changeSeq) {
+
+    public static MessageSinceCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            return new MessageSinceCursor(Long.parseLong(decoded));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(STR."Invalid message cursor '\{cursor}'");
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(Long.toString(changeSeq).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,9 @@
+package ru.golovkov.myrestapp.model.dto;
+
+import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
+
+/**
+ * A submitted message and whether it is already written, which only write-behind without waiting leaves undone.
+ */
+public record MessageSubmission(MessageResponseDto message, boolean persisted) {
+}
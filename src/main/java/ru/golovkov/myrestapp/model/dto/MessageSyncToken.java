@@ -0,0 +1,31 @@
+package ru.golovkov.myrestapp.model.dto;
+
+import ru.golovkov.myrestapp.exception.httpcommon.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+public record MessageSyncToken(long changeSeq, Instant issuedAt) {
+
+    private static final String SEPARATOR = "|";
+
+    public static MessageSyncToken decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIndex = decoded.lastIndexOf(SEPARATOR);
+            return new MessageSyncToken(
+                    Long.parseLong(decoded.substring(0, separatorIndex)),
+                    Instant.ofEpochMilli(Long.parseLong(decoded.substring(separatorIndex + 1)))
+            );
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BadRequestException(STR."Invalid sync token '\{token}'");
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((changeSeq + SEPARATOR + issuedAt.toEpochMilli()).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,19 @@
+package ru.golovkov.myrestapp.model.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageBulkItemRequestDto {
+
+    @NotNull
+    private Long receiverId;
+
+    @NotBlank
+    private String content;
+}
@@ -0,0 +1,6 @@
+package ru.golovkov.myrestapp.model.dto.request;
+
+public enum MessageSearchMode {
+    SUBSTRING,
+    WORDS
+}
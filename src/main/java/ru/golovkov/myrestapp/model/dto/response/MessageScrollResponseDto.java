@@ -0,0 +1,17 @@
+package ru.golovkov.myrestapp.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class MessageScrollResponseDto {
+
+    private List<MessageResponseDto> messages;
+
+    private String nextCursor;
+
+    private boolean hasMore;
+}
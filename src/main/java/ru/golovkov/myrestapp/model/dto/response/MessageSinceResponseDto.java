@@ -0,0 +1,15 @@
+package ru.golovkov.myrestapp.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class MessageSinceResponseDto {
+
+    private List<MessageResponseDto> messages;
+
+    private String nextCursor;
+}
@@ -0,0 +1,21 @@
+package ru.golovkov.myrestapp.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class MessageSyncResponseDto {
+
+    private List<MessageResponseDto> upserts;
+
+    private List<Long> deletedIds;
+
+    private String syncToken;
+
+    private boolean hasMore;
+
+    private boolean fullResync;
+}
@@ -0,0 +1,15 @@
+package ru.golovkov.myrestapp.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersonSuggestionDto {
+
+    private Long id;
+
+    private String name;
+}
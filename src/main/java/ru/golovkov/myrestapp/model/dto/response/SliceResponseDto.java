@@ -0,0 +1,19 @@
+package ru.golovkov.myrestapp.model.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class SliceResponseDto<T> {
+
+    private List<T> content;
+
+    private boolean hasNext;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long totalElements;
+}
@@ -2,27 +2,42 @@ package ru.golovkov.myrestapp.model.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.SQLDelete;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "messages")
+@SQLDelete(sql = "UPDATE messages SET deleted_at = now(), content = NULL WHERE id = ?")
+@SQLRestriction("deleted_at IS NULL")
 @Data
 public class Message {
 
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "messages_seq")
+    @SequenceGenerator(name = "messages_seq", sequenceName = "messages_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     private String content;
 
     private LocalDateTime sentAt;
 
-    @ManyToOne
+    private String conversationKey;
+
+    private LocalDateTime deletedAt;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sender_id")
     private Person sender;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "receiver_id")
     private Person receiver;
+
+    public static String conversationKeyOf(Long firstPersonId, Long secondPersonId) {
+        return STR."\{Math.min(firstPersonId, secondPersonId)}:\{Math.max(firstPersonId, secondPersonId)}";
+    }
 }
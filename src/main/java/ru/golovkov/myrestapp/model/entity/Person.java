@@ -3,19 +3,33 @@ package ru.golovkov.myrestapp.model.entity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.hibernate.annotations.SQLDelete;
+import org.hibernate.annotations.SQLRestriction;
+import ru.golovkov.myrestapp.config.CacheConfig;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
 @Table(name = "people")
+@SQLDelete(sql = "UPDATE people SET deleted_at = now(), name = NULL, email = NULL, password = NULL WHERE id = ?")
+@SQLRestriction("deleted_at IS NULL")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.PEOPLE_REGION)
+@NaturalIdCache(region = CacheConfig.PEOPLE_BY_NAME_REGION)
 @Data
 public class Person {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "people_seq")
+    @SequenceGenerator(name = "people_seq", sequenceName = "people_seq", allocationSize = 50)
     private Long id;
 
+    @NaturalId(mutable = true)
     @Column(unique = true)
     private String name;
 
@@ -31,6 +45,8 @@ public class Person {
 
     private LocalDate registrationDate;
 
+    private LocalDateTime deletedAt;
+
     @OneToMany(mappedBy = "sender")
     @JsonIgnore
     List<Message> sentMessages;
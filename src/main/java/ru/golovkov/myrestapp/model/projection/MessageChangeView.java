@@ -0,0 +1,8 @@
+package ru.golovkov.myrestapp.model.projection;
+
+public interface MessageChangeView extends MessageView {
+
+    Long getChangeSeq();
+
+    boolean isDeleted();
+}
@@ -0,0 +1,6 @@
+package ru.golovkov.myrestapp.model.projection;
+
+public interface MessageMutationView extends MessageView {
+
+    Long getReceiverId();
+}
@@ -0,0 +1,14 @@
+package ru.golovkov.myrestapp.model.projection;
+
+import java.time.LocalDateTime;
+
+public interface MessageView {
+
+    Long getId();
+
+    String getContent();
+
+    Long getSenderId();
+
+    LocalDateTime getSentAt();
+}
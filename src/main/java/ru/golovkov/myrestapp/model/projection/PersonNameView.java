@@ -0,0 +1,8 @@
+package ru.golovkov.myrestapp.model.projection;
+
+public interface PersonNameView {
+
+    Long getId();
+
+    String getName();
+}
@@ -0,0 +1,23 @@
+package ru.golovkov.myrestapp.realtime;
+
+import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
+import ru.golovkov.myrestapp.model.entity.Message;
+
+/**
+ * A change to a message that real-time subscribers should see. Events received from other nodes
+ * through {@link PostgresMessageEventBridge} are marked as {@code remote} so they aren't sent back out.
+ */
+public record MessageEvent(MessageEventType type, MessageResponseDto message, Long receiverId, boolean remote) {
+
+    public MessageEvent(MessageEventType type, MessageResponseDto message, Long receiverId) {
+        this(type, message, receiverId, false);
+    }
+
+    public Long senderId() {
+        return message.getSenderId();
+    }
+
+    public String conversationKey() {
+        return Message.conversationKeyOf(senderId(), receiverId);
+    }
+}
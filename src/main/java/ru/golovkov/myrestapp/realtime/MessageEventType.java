@@ -0,0 +1,18 @@
+package ru.golovkov.myrestapp.realtime;
+
+public enum MessageEventType {
+
+    CREATED("message-created"),
+    UPDATED("message-updated"),
+    DELETED("message-deleted");
+
+    private final String eventName;
+
+    MessageEventType(String eventName) {
+        this.eventName = eventName;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+}
@@ -0,0 +1,85 @@
+package ru.golovkov.myrestapp.realtime;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Parks long-poll requests per conversation until a message of it is created or edited, or the wait expires.
+ * Message ids do not follow commit order, so a wake-up only tells the waiter to read the conversation again
+ * after its change_seq cursor. Waiters are woken on a pool of their own, which keeps those reads off
+ * the thread that committed the change.
+ */
+@Component
+public class MessageLongPollRegistry implements DisposableBean {
+
+    private final Map<String, Set<CompletableFuture<Boolean>>> waitersByConversationKey = new ConcurrentHashMap<>();
+    private final Executor executor;
+
+    @Autowired
+    public MessageLongPollRegistry(MeterRegistry meterRegistry,
+                                   @Value("${app.messages.long-poll.threads}") int threads) {
+        this(meterRegistry, Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("message-long-poll-")));
+    }
+
+    MessageLongPollRegistry(MeterRegistry meterRegistry, Executor executor) {
+        this.executor = executor;
+        Gauge.builder("messages.long-poll.waiting", this, MessageLongPollRegistry::getWaiterCount).register(meterRegistry);
+    }
+
+    /**
+     * Registers a waiter for changes of the conversation. The future completes with {@code true} on the
+     * registry's pool once a message is created or edited, or with {@code false} once {@code wait} expires.
+     */
+    public CompletableFuture<Boolean> await(String conversationKey, Duration wait) {
+        CompletableFuture<Boolean> waiter = new CompletableFuture<>();
+        waitersByConversationKey
+                .computeIfAbsent(conversationKey, key -> ConcurrentHashMap.newKeySet())
+                .add(waiter);
+        waiter.completeOnTimeout(false, wait.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((changed, e) -> remove(conversationKey, waiter));
+        return waiter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        if (event.type() == MessageEventType.DELETED) {
+            return;
+        }
+        Set<CompletableFuture<Boolean>> waiters = waitersByConversationKey.get(event.conversationKey());
+        if (waiters == null) {
+            return;
+        }
+        for (CompletableFuture<Boolean> waiter : waiters) {
+            waiter.completeAsync(() -> true, executor);
+        }
+    }
+
+    public int getWaiterCount() {
+        return waitersByConversationKey.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @Override
+    public void destroy() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void remove(String conversationKey, CompletableFuture<Boolean> waiter) {
+        waitersByConversationKey.computeIfPresent(conversationKey, (key, waiters) -> {
+            waiters.remove(waiter);
+            return waiters.isEmpty() ? null : waiters;
+        });
+    }
+}
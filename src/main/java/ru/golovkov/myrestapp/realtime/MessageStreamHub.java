@@ -0,0 +1,171 @@
+package ru.golovkov.myrestapp.realtime;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+@Component
+public class MessageStreamHub implements DisposableBean {
+
+    private static final String METRIC_NAME = "messages.stream";
+
+    private final Map<Long, Set<Subscription>> subscriptionsByPersonId = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeatExecutor;
+    private final ExecutorService drainExecutor;
+    private final Duration timeout;
+    private final int bufferSize;
+    private final Counter droppedCounter;
+
+    @Autowired
+    public MessageStreamHub(MeterRegistry meterRegistry,
+                            @Value("${app.messages.stream.timeout}") Duration timeout,
+                            @Value("${app.messages.stream.buffer-size}") int bufferSize,
+                            @Value("${app.messages.stream.heartbeat-interval}") Duration heartbeatInterval) {
+        this(meterRegistry, timeout, bufferSize, heartbeatInterval,
+                Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("message-stream-heartbeat-")),
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("message-stream-", 0).factory()));
+    }
+
+    MessageStreamHub(MeterRegistry meterRegistry,
+                     Duration timeout,
+                     int bufferSize,
+                     Duration heartbeatInterval,
+                     ScheduledExecutorService heartbeatExecutor,
+                     ExecutorService drainExecutor) {
+        this.timeout = timeout;
+        this.bufferSize = bufferSize;
+        this.heartbeatExecutor = heartbeatExecutor;
+        this.drainExecutor = drainExecutor;
+        this.heartbeatExecutor.scheduleAtFixedRate(this::sendHeartbeats,
+                heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+        Gauge.builder(METRIC_NAME + ".subscriptions", this, MessageStreamHub::getSubscriptionCount).register(meterRegistry);
+        this.droppedCounter = Counter.builder(METRIC_NAME + ".dropped").register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(Long personId) {
+        Subscription subscription = new Subscription(personId, createEmitter(timeout), new ArrayBlockingQueue<>(bufferSize));
+        subscriptionsByPersonId
+                .computeIfAbsent(personId, id -> ConcurrentHashMap.newKeySet())
+                .add(subscription);
+        subscription.emitter().onCompletion(() -> unsubscribe(subscription));
+        subscription.emitter().onTimeout(() -> unsubscribe(subscription));
+        subscription.emitter().onError(e -> unsubscribe(subscription));
+        return subscription.emitter();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        publish(event.senderId(), event);
+        if (!event.receiverId().equals(event.senderId())) {
+            publish(event.receiverId(), event);
+        }
+    }
+
+    public int getSubscriptionCount() {
+        return subscriptionsByPersonId.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @Override
+    public void destroy() {
+        heartbeatExecutor.shutdownNow();
+        drainExecutor.shutdownNow();
+        subscriptionsByPersonId.values().forEach(subscriptions -> subscriptions
+                .forEach(subscription -> subscription.emitter().complete()));
+        subscriptionsByPersonId.clear();
+    }
+
+    SseEmitter createEmitter(Duration timeout) {
+        return new SseEmitter(timeout.toMillis());
+    }
+
+    private void publish(Long personId, MessageEvent event) {
+        Set<Subscription> subscriptions = subscriptionsByPersonId.get(personId);
+        if (subscriptions == null) {
+            return;
+        }
+        for (Subscription subscription : subscriptions) {
+            SseEmitter.SseEventBuilder sseEvent = SseEmitter.event()
+                    .id(String.valueOf(event.message().getId()))
+                    .name(event.type().getEventName())
+                    .data(event.message(), MediaType.APPLICATION_JSON);
+            if (subscription.buffer().offer(sseEvent)) {
+                scheduleDrain(subscription);
+            } else {
+                log.debug("Dropping slow message stream subscriber of person {}", personId);
+                droppedCounter.increment();
+                unsubscribe(subscription);
+                subscription.emitter().complete();
+            }
+        }
+    }
+
+    private void sendHeartbeats() {
+        subscriptionsByPersonId.values().forEach(subscriptions -> subscriptions.forEach(subscription -> {
+            if (subscription.buffer().offer(SseEmitter.event().comment("heartbeat"))) {
+                scheduleDrain(subscription);
+            }
+        }));
+    }
+
+    private void scheduleDrain(Subscription subscription) {
+        if (subscription.draining().compareAndSet(false, true)) {
+            try {
+                drainExecutor.execute(() -> drain(subscription));
+            } catch (RejectedExecutionException e) {
+                subscription.draining().set(false);
+            }
+        }
+    }
+
+    private void drain(Subscription subscription) {
+        try {
+            SseEmitter.SseEventBuilder sseEvent;
+            while ((sseEvent = subscription.buffer().poll()) != null) {
+                subscription.emitter().send(sseEvent);
+            }
+        } catch (IOException | IllegalStateException e) {
+            unsubscribe(subscription);
+            subscription.buffer().clear();
+            return;
+        } finally {
+            subscription.draining().set(false);
+        }
+        if (!subscription.buffer().isEmpty()) {
+            scheduleDrain(subscription);
+        }
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        subscriptionsByPersonId.computeIfPresent(subscription.personId(), (personId, subscriptions) -> {
+            subscriptions.remove(subscription);
+            return subscriptions.isEmpty() ? null : subscriptions;
+        });
+    }
+
+    private record Subscription(Long personId,
+                                SseEmitter emitter,
+                                BlockingQueue<SseEmitter.SseEventBuilder> buffer,
+                                AtomicBoolean draining) {
+
+        private Subscription(Long personId, SseEmitter emitter, BlockingQueue<SseEmitter.SseEventBuilder> buffer) {
+            this(personId, emitter, buffer, new AtomicBoolean());
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package ru.golovkov.myrestapp.realtime;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Relays {@link MessageEvent}s between application nodes through Postgres {@code NOTIFY}, so that
+ * stream subscribers connected to one node see messages written on another.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.messages.notify.enabled", havingValue = "true")
+public class PostgresMessageEventBridge implements DisposableBean {
+
+    // Postgres rejects payloads of 8000 bytes and more, and the failure would roll back the writing transaction.
+    private static final int MAX_PAYLOAD_BYTES = 7999;
+    private static final String NOTIFY_SQL = "SELECT pg_notify(?, ?)";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final DataSourceProperties dataSourceProperties;
+    private final String channel;
+    private final Duration pollTimeout;
+    private final Duration reconnectDelay;
+    private volatile boolean running = true;
+    private volatile Thread listenerThread;
+
+    public PostgresMessageEventBridge(JdbcTemplate jdbcTemplate,
+                                      ApplicationEventPublisher eventPublisher,
+                                      ObjectMapper objectMapper,
+                                      DataSourceProperties dataSourceProperties,
+                                      @Value("${app.messages.notify.channel}") String channel,
+                                      @Value("${app.messages.notify.poll-timeout}") Duration pollTimeout,
+                                      @Value("${app.messages.notify.reconnect-delay}") Duration reconnectDelay) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException(STR."Invalid notification channel name: \{channel}");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.dataSourceProperties = dataSourceProperties;
+        this.channel = channel;
+        this.pollTimeout = pollTimeout;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startListening() {
+        listenerThread = Thread.ofPlatform()
+                .name("message-notify-listener")
+                .daemon()
+                .start(this::listen);
+    }
+
+    /**
+     * Collects local events of the current transaction and sends them together right before
+     * it commits; Postgres delivers the notifications only if the commit succeeds.
+     */
+    @EventListener
+    public void onMessageEvent(MessageEvent event) {
+        if (event.remote()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            sendNotifications(List.of(event));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<MessageEvent> pendingEvents = (List<MessageEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pendingEvents == null) {
+            List<MessageEvent> transactionEvents = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, transactionEvents);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    sendNotifications(transactionEvents);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PostgresMessageEventBridge.this);
+                }
+            });
+            pendingEvents = transactionEvents;
+        }
+        pendingEvents.add(event);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.join(pollTimeout.multipliedBy(2).toMillis());
+        }
+    }
+
+    /**
+     * Packs the events into as few notifications as fit the payload limit. A single event always fits:
+     * its content is at most 255 characters, so even fully escaped it stays far below the limit.
+     */
+    private void sendNotifications(List<MessageEvent> events) {
+        try {
+            int envelopeBytes = objectMapper.writeValueAsBytes(new Notification(nodeId, List.of())).length;
+            List<NotifiedEvent> chunk = new ArrayList<>();
+            int chunkBytes = envelopeBytes;
+            for (MessageEvent event : events) {
+                NotifiedEvent notifiedEvent = NotifiedEvent.of(event);
+                // Jackson writes UTF-8, so this is the size Postgres checks; the separating comma adds one byte.
+                int eventBytes = objectMapper.writeValueAsBytes(notifiedEvent).length + 1;
+                if (!chunk.isEmpty() && chunkBytes + eventBytes > MAX_PAYLOAD_BYTES) {
+                    sendNotification(chunk);
+                    chunk = new ArrayList<>();
+                    chunkBytes = envelopeBytes;
+                }
+                chunk.add(notifiedEvent);
+                chunkBytes += eventBytes;
+            }
+            if (!chunk.isEmpty()) {
+                sendNotification(chunk);
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void sendNotification(List<NotifiedEvent> chunk) throws JsonProcessingException {
+        String payload = objectMapper.writeValueAsString(new Notification(nodeId, chunk));
+        jdbcTemplate.queryForObject(NOTIFY_SQL, Object.class, channel, payload);
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(
+                    dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(),
+                    dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(STR."LISTEN \{channel}");
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    for (PGNotification notification : pgConnection.getNotifications((int) pollTimeout.toMillis())) {
+                        handleNotification(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Lost the message notification connection, reconnecting in {}", reconnectDelay, e);
+                    try {
+                        Thread.sleep(reconnectDelay);
+                    } catch (InterruptedException interruptedException) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void handleNotification(String payload) {
+        try {
+            Notification notification = objectMapper.readValue(payload, Notification.class);
+            if (nodeId.equals(notification.node())) {
+                return;
+            }
+            notification.events().forEach(event -> eventPublisher.publishEvent(event.toMessageEvent()));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Skipping malformed message notification", e);
+        }
+    }
+
+    record Notification(String node, List<NotifiedEvent> events) {
+    }
+
+    record NotifiedEvent(MessageEventType type,
+                         Long id,
+                         String content,
+                         Long senderId,
+                         Long receiverId,
+                         LocalDateTime sentAt) {
+
+        static NotifiedEvent of(MessageEvent event) {
+            MessageResponseDto message = event.message();
+            return new NotifiedEvent(
+                    event.type(),
+                    message.getId(),
+                    message.getContent(),
+                    message.getSenderId(),
+                    event.receiverId(),
+                    message.getSentAt()
+            );
+        }
+
+        MessageEvent toMessageEvent() {
+            return new MessageEvent(type, new MessageResponseDto(id, content, senderId, sentAt), receiverId, true);
+        }
+    }
+}
@@ -1,39 +1,248 @@
 package ru.golovkov.myrestapp.repository;
 
-import org.springframework.data.domain.Page;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.golovkov.myrestapp.config.CacheConfig;
+import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
 import ru.golovkov.myrestapp.model.entity.Message;
+import ru.golovkov.myrestapp.model.projection.MessageChangeView;
+import ru.golovkov.myrestapp.model.projection.MessageMutationView;
+import ru.golovkov.myrestapp.model.projection.MessageView;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface MessageRepository extends JpaRepository<Message, Long> {
 
-    Page<Message> findAllByReceiver_IdAndSender_Id(Long receiverId,
-                                                   Long senderId,
-                                                   Pageable pageable);
-
-    Page<Message> findAllByReceiver_IdAndSender_IdAndContentContainingIgnoreCase(Long receiverId,
-                                                                                 Long senderId,
-                                                                                 String content,
-                                                                                 Pageable pageable);
-
-    @Query("SELECT m FROM Message m " +
-            "JOIN m.sender s " +
-            "JOIN m.receiver r " +
-            "WHERE (s.id = :senderId AND r.id = :receiverId) " +
-            "OR (s.id = :receiverId AND r.id = :senderId)")
-    Page<Message> findAllWithSenderByIds(@Param("receiverId") Long receiverId,
-                                         @Param("senderId") Long senderId,
-                                         Pageable pageable);
-
-    @Query("SELECT m FROM Message m " +
-            "JOIN m.sender s " +
-            "JOIN m.receiver r " +
-            "WHERE (s.id = :senderId AND r.id = :receiverId)  AND m.content LIKE %:content% " +
-            "OR (s.id = :receiverId AND r.id = :senderId) AND m.content LIKE %:content%")
-    Page<Message> findAllWithSenderByIdsAndContent(@Param("receiverId") Long receiverId,
-                                                   @Param("senderId") Long senderId,
-                                                   @Param("content") String content,
-                                                   Pageable pageable);
+    @Query("SELECT new ru.golovkov.myrestapp.model.dto.response.MessageResponseDto(m.id, m.content, m.sender.id, m.sentAt) " +
+            "FROM Message m " +
+            "WHERE m.receiver.id = :receiverId AND m.sender.id = :senderId")
+    Slice<MessageResponseDto> findAllByReceiver_IdAndSender_Id(@Param("receiverId") Long receiverId,
+                                                               @Param("senderId") Long senderId,
+                                                               Pageable pageable);
+
+    @Cacheable(cacheNames = CacheConfig.MESSAGE_COUNTS, key = "'from:' + #p0 + ':' + #p1")
+    long countByReceiver_IdAndSender_Id(Long receiverId, Long senderId);
+
+    @Query("SELECT new ru.golovkov.myrestapp.model.dto.response.MessageResponseDto(m.id, m.content, m.sender.id, m.sentAt) " +
+            "FROM Message m " +
+            "WHERE m.conversationKey = :conversationKey")
+    Slice<MessageResponseDto> findAllByConversationKey(@Param("conversationKey") String conversationKey,
+                                                       Pageable pageable);
+
+    @Cacheable(cacheNames = CacheConfig.MESSAGE_COUNTS, key = "'with:' + #p0")
+    long countByConversationKey(String conversationKey);
+
+    @Query("SELECT new ru.golovkov.myrestapp.model.dto.response.MessageResponseDto(page.id, page.content, page.senderId, page.sentAt) " +
+            "FROM (" +
+            "SELECT m.id AS id, m.content AS content, m.sender.id AS senderId, m.sentAt AS sentAt " +
+            "FROM Message m " +
+            "WHERE m.conversationKey = :conversationKey " +
+            "ORDER BY m.sentAt DESC, m.id DESC " +
+            "LIMIT :limit) page " +
+            "ORDER BY page.sentAt, page.id")
+    List<MessageResponseDto> findLatestByConversationKey(@Param("conversationKey") String conversationKey,
+                                                         @Param("limit") int limit);
+
+    @Query("SELECT new ru.golovkov.myrestapp.model.dto.response.MessageResponseDto(page.id, page.content, page.senderId, page.sentAt) " +
+            "FROM (" +
+            "SELECT m.id AS id, m.content AS content, m.sender.id AS senderId, m.sentAt AS sentAt " +
+            "FROM Message m " +
+            "WHERE m.conversationKey = :conversationKey " +
+            "AND (m.sentAt, m.id) < (:sentAt, :id) " +
+            "ORDER BY m.sentAt DESC, m.id DESC " +
+            "LIMIT :limit) page " +
+            "ORDER BY page.sentAt, page.id")
+    List<MessageResponseDto> findByConversationKeyBefore(@Param("conversationKey") String conversationKey,
+                                                         @Param("sentAt") LocalDateTime sentAt,
+                                                         @Param("id") Long id,
+                                                         @Param("limit") int limit);
+
+    @Query("SELECT new ru.golovkov.myrestapp.model.dto.response.MessageResponseDto(m.id, m.content, m.sender.id, m.sentAt) " +
+            "FROM Message m " +
+            "WHERE m.conversationKey = :conversationKey " +
+            "AND (m.sentAt, m.id) > (:sentAt, :id) " +
+            "ORDER BY m.sentAt, m.id " +
+            "LIMIT :limit")
+    List<MessageResponseDto> findByConversationKeyAfter(@Param("conversationKey") String conversationKey,
+                                                        @Param("sentAt") LocalDateTime sentAt,
+                                                        @Param("id") Long id,
+                                                        @Param("limit") int limit);
+
+    @Query("SELECT m.sender.id FROM Message m WHERE m.id = :id")
+    Optional<Long> findSenderIdById(@Param("id") Long id);
+
+    @Transactional
+    @Query(value = "UPDATE messages m " +
+            "SET content = :content " +
+            "WHERE m.id = :id AND m.sender_id = :senderId AND m.deleted_at IS NULL " +
+            "RETURNING m.id, m.content, m.sender_id AS \"senderId\", m.receiver_id AS \"receiverId\", m.sent_at AS \"sentAt\"",
+            nativeQuery = true)
+    Optional<MessageMutationView> updateContentByIdAndSenderId(@Param("id") Long id,
+                                                               @Param("senderId") Long senderId,
+                                                               @Param("content") String content);
+
+    // Soft delete as in Message's @SQLDelete; the self-join returns the content as it was before it is cleared.
+    @Transactional
+    @Query(value = "UPDATE messages m " +
+            "SET deleted_at = now(), content = NULL " +
+            "FROM messages deleted " +
+            "WHERE m.id = :id AND m.sender_id = :senderId AND m.deleted_at IS NULL AND deleted.id = m.id " +
+            "RETURNING m.id, deleted.content, m.sender_id AS \"senderId\", m.receiver_id AS \"receiverId\", m.sent_at AS \"sentAt\"",
+            nativeQuery = true)
+    Optional<MessageMutationView> deleteByIdAndSenderId(@Param("id") Long id, @Param("senderId") Long senderId);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new ru.golovkov.myrestapp.model.dto.response.MessageResponseDto(m.id, m.content, m.sender.id, m.sentAt) " +
+            "FROM Message m " +
+            "WHERE m.conversationKey = :conversationKey " +
+            "ORDER BY m.sentAt, m.id")
+    Stream<MessageResponseDto> streamByConversationKey(@Param("conversationKey") String conversationKey);
+
+    // Naming the affected table keeps Hibernate from clearing every second-level cache region afterwards.
+    // Locks are taken in lockConversations order before the change_seq trigger asks for them.
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "messages"))
+    @Query(value = "UPDATE messages m " +
+            "SET conversation_key = batch.conversation_key " +
+            "FROM (" +
+            "SELECT pending.id, pending.conversation_key, " +
+            "pg_advisory_xact_lock(hashtext(pending.conversation_key)) AS locked " +
+            "FROM (" +
+            "SELECT id, LEAST(sender_id, receiver_id) || ':' || GREATEST(sender_id, receiver_id) AS conversation_key " +
+            "FROM messages " +
+            "WHERE conversation_key IS NULL AND sender_id IS NOT NULL AND receiver_id IS NOT NULL " +
+            "LIMIT :batchSize) pending " +
+            "ORDER BY hashtext(pending.conversation_key)) batch " +
+            "WHERE m.id = batch.id",
+            nativeQuery = true)
+    int backfillConversationKeys(@Param("batchSize") int batchSize);
+
+    // Takes the change_seq trigger's locks in one global order, so transactions writing to several
+    // conversations queue up behind each other instead of deadlocking.
+    @Query(value = "SELECT count(*) FROM (" +
+            "SELECT pg_advisory_xact_lock(lock_id) FROM (" +
+            "SELECT DISTINCT hashtext(conversation_key) AS lock_id " +
+            "FROM unnest(CAST(:conversationKeys AS TEXT[])) AS conversation_key " +
+            "ORDER BY lock_id) lock_ids) locks",
+            nativeQuery = true)
+    long lockConversations(@Param("conversationKeys") String[] conversationKeys);
+
+    @Query(value = "SELECT m.id, m.content, m.sender_id AS \"senderId\", m.sent_at AS \"sentAt\", " +
+            "m.change_seq AS \"changeSeq\", m.deleted_at IS NOT NULL AS \"deleted\" " +
+            "FROM messages m " +
+            "WHERE m.conversation_key = :conversationKey " +
+            "AND m.change_seq > :changeSeq " +
+            "AND (:includeTombstones OR m.deleted_at IS NULL) " +
+            "ORDER BY m.change_seq " +
+            "LIMIT :limit",
+            nativeQuery = true)
+    List<MessageChangeView> findChangesByConversationKey(@Param("conversationKey") String conversationKey,
+                                                         @Param("changeSeq") long changeSeq,
+                                                         @Param("includeTombstones") boolean includeTombstones,
+                                                         @Param("limit") int limit);
+
+    @Query(value = "SELECT coalesce(max(m.change_seq), 0) " +
+            "FROM messages m " +
+            "WHERE m.conversation_key = :conversationKey",
+            nativeQuery = true)
+    long findLastChangeSeqByConversationKey(@Param("conversationKey") String conversationKey);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "messages"))
+    @Query(value = "DELETE FROM messages " +
+            "WHERE id IN (" +
+            "SELECT id FROM messages " +
+            "WHERE deleted_at < :deletedBefore " +
+            "LIMIT :batchSize)",
+            nativeQuery = true)
+    int purgeTombstones(@Param("deletedBefore") LocalDateTime deletedBefore, @Param("batchSize") int batchSize);
+
+    // Leaves tombstones like deleteByIdAndSenderId, taking the conversation locks in lockConversations order.
+    @Transactional
+    @Query(value = "UPDATE messages m " +
+            "SET deleted_at = now(), content = NULL " +
+            "FROM (" +
+            "SELECT pending.id, pending.content, " +
+            "pg_advisory_xact_lock(hashtext(pending.conversation_key)) AS locked " +
+            "FROM (" +
+            "SELECT id, content, conversation_key FROM messages " +
+            "WHERE (sender_id = :personId OR receiver_id = :personId) AND deleted_at IS NULL " +
+            "LIMIT :batchSize) pending " +
+            "ORDER BY hashtext(pending.conversation_key)) deleted " +
+            "WHERE m.id = deleted.id AND m.deleted_at IS NULL " +
+            "RETURNING m.id, deleted.content, m.sender_id AS \"senderId\", m.receiver_id AS \"receiverId\", m.sent_at AS \"sentAt\"",
+            nativeQuery = true)
+    List<MessageMutationView> softDeleteByPersonId(@Param("personId") Long personId, @Param("batchSize") int batchSize);
+
+    // Counts tombstones too: they keep the person row referenced until compaction removes them.
+    @Query(value = "SELECT EXISTS (" +
+            "SELECT 1 FROM messages " +
+            "WHERE sender_id = :personId OR receiver_id = :personId)",
+            nativeQuery = true)
+    boolean existsByPersonIdIncludingDeleted(@Param("personId") Long personId);
+
+    @Query(value = "SELECT m.id, m.content, m.sender_id AS \"senderId\", m.sent_at AS \"sentAt\" " +
+            "FROM messages m " +
+            "WHERE m.receiver_id = :receiverId AND m.sender_id = :senderId " +
+            "AND lower(m.content) LIKE '%' || lower(:pattern) || '%' " +
+            "AND m.deleted_at IS NULL " +
+            "ORDER BY word_similarity(lower(:content), lower(m.content)) DESC, m.sent_at DESC, m.id DESC",
+            nativeQuery = true)
+    Slice<MessageView> searchByReceiverIdAndSenderIdAndSubstring(@Param("receiverId") Long receiverId,
+                                                                 @Param("senderId") Long senderId,
+                                                                 @Param("content") String content,
+                                                                 @Param("pattern") String pattern,
+                                                                 Pageable pageable);
+
+    @Query(value = "SELECT m.id, m.content, m.sender_id AS \"senderId\", m.sent_at AS \"sentAt\" " +
+            "FROM messages m " +
+            "WHERE m.receiver_id = :receiverId AND m.sender_id = :senderId " +
+            "AND m.content_tsv @@ plainto_tsquery('simple', :content) " +
+            "AND m.deleted_at IS NULL " +
+            "ORDER BY ts_rank(m.content_tsv, plainto_tsquery('simple', :content)) DESC, m.sent_at DESC, m.id DESC",
+            nativeQuery = true)
+    Slice<MessageView> searchByReceiverIdAndSenderIdAndWords(@Param("receiverId") Long receiverId,
+                                                             @Param("senderId") Long senderId,
+                                                             @Param("content") String content,
+                                                             Pageable pageable);
+
+    @Query(value = "SELECT m.id, m.content, m.sender_id AS \"senderId\", m.sent_at AS \"sentAt\" " +
+            "FROM messages m " +
+            "WHERE m.conversation_key = :conversationKey " +
+            "AND lower(m.content) LIKE '%' || lower(:pattern) || '%' " +
+            "AND m.deleted_at IS NULL " +
+            "ORDER BY word_similarity(lower(:content), lower(m.content)) DESC, m.sent_at DESC, m.id DESC",
+            nativeQuery = true)
+    Slice<MessageView> searchByConversationKeyAndSubstring(@Param("conversationKey") String conversationKey,
+                                                           @Param("content") String content,
+                                                           @Param("pattern") String pattern,
+                                                           Pageable pageable);
+
+    @Query(value = "SELECT m.id, m.content, m.sender_id AS \"senderId\", m.sent_at AS \"sentAt\" " +
+            "FROM messages m " +
+            "WHERE m.conversation_key = :conversationKey " +
+            "AND m.content_tsv @@ plainto_tsquery('simple', :content) " +
+            "AND m.deleted_at IS NULL " +
+            "ORDER BY ts_rank(m.content_tsv, plainto_tsquery('simple', :content)) DESC, m.sent_at DESC, m.id DESC",
+            nativeQuery = true)
+    Slice<MessageView> searchByConversationKeyAndWords(@Param("conversationKey") String conversationKey,
+                                                       @Param("content") String content,
+                                                       Pageable pageable);
 }
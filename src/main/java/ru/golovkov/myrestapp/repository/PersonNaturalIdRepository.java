@@ -0,0 +1,14 @@
+package ru.golovkov.myrestapp.repository;
+
+import org.springframework.transaction.annotation.Transactional;
+import ru.golovkov.myrestapp.model.entity.Person;
+
+import java.util.Optional;
+
+public interface PersonNaturalIdRepository {
+
+    @Transactional(readOnly = true)
+    Optional<Person> findByName(String name);
+
+    void evictFromSecondLevelCache(Long id, String name);
+}
@@ -0,0 +1,43 @@
+package ru.golovkov.myrestapp.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import ru.golovkov.myrestapp.model.entity.Person;
+
+import java.util.Optional;
+
+@RequiredArgsConstructor
+class PersonNaturalIdRepositoryImpl implements PersonNaturalIdRepository {
+
+    private final EntityManager entityManager;
+    private final EntityManagerFactory entityManagerFactory;
+
+    // Loading by natural id lets Hibernate take both the name-to-id mapping and the person from the second-level cache.
+    @Override
+    public Optional<Person> findByName(String name) {
+        return entityManager
+                .unwrap(Session.class)
+                .bySimpleNaturalId(Person.class)
+                .loadOptional(name);
+    }
+
+    // Soft deletes are native statements, so Hibernate does not see them. The name-to-id mapping has to go as well:
+    // Hibernate keeps a cached mapping when the name is registered again, and the new person would not be found.
+    @Override
+    public void evictFromSecondLevelCache(Long id, String name) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        sessionFactory.getCache().evictEntityData(Person.class, id);
+        EntityPersister persister = sessionFactory.getMappingMetamodel().getEntityDescriptor(Person.class);
+        NaturalIdDataAccess naturalIdAccess = persister.getNaturalIdCacheAccessStrategy();
+        // The cache key only needs a session for the tenant; opening one does not take a connection.
+        try (SessionImplementor session = sessionFactory.openSession().unwrap(SessionImplementor.class)) {
+            naturalIdAccess.evict(naturalIdAccess.generateCacheKey(name, persister, session));
+        }
+    }
+}
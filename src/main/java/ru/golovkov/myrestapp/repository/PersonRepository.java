@@ -1,23 +1,71 @@
 package ru.golovkov.myrestapp.repository;
 
-import org.springframework.data.domain.Page;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.golovkov.myrestapp.config.CacheConfig;
 import ru.golovkov.myrestapp.model.entity.Person;
+import ru.golovkov.myrestapp.model.projection.PersonNameView;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PersonRepository extends JpaRepository<Person, Long> {
+public interface PersonRepository extends JpaRepository<Person, Long>, PersonNaturalIdRepository {
 
-    Optional<Person> findByName(String name);
+    @Query("SELECT p.id AS id, p.name AS name FROM Person p")
+    List<PersonNameView> findAllNames();
 
-    void deleteByName(String name);
+    // Soft delete as in Person's @SQLDelete; the self-join returns the name as it was before it is cleared.
+    @Transactional
+    @Query(value = "UPDATE people p " +
+            "SET deleted_at = now(), name = NULL, email = NULL, password = NULL " +
+            "FROM people deleted " +
+            "WHERE p.id = :id AND p.deleted_at IS NULL AND deleted.id = p.id " +
+            "RETURNING deleted.name",
+            nativeQuery = true)
+    Optional<String> softDeleteById(@Param("id") Long id);
 
-    boolean existsByName(String name);
+    @Transactional
+    @Query(value = "UPDATE people " +
+            "SET deleted_at = now(), name = NULL, email = NULL, password = NULL " +
+            "WHERE name = :name AND deleted_at IS NULL " +
+            "RETURNING id",
+            nativeQuery = true)
+    Optional<Long> softDeleteByName(@Param("name") String name);
 
-    Page<Person> findAllByNameContainingIgnoreCase(Pageable pageable, String name);
+    @Query(value = "SELECT id FROM people " +
+            "WHERE deleted_at IS NOT NULL AND id > :afterId " +
+            "ORDER BY id " +
+            "LIMIT :limit",
+            nativeQuery = true)
+    List<Long> findSoftDeletedIds(@Param("afterId") long afterId, @Param("limit") int limit);
 
-    Page<Person> findAll(Pageable pageable);
+    // Only soft-deleted rows go, and they are evicted on delete; naming the table spares every other region.
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "people"))
+    @Query(value = "DELETE FROM people " +
+            "WHERE id = :id AND deleted_at IS NOT NULL",
+            nativeQuery = true)
+    int purgeSoftDeletedById(@Param("id") Long id);
+
+    Slice<Person> findAllByNameContainingIgnoreCase(Pageable pageable, String name);
+
+    Slice<Person> findAllBy(Pageable pageable);
+
+    @Cacheable(cacheNames = CacheConfig.PERSON_COUNTS, key = "'name:' + #p0.toLowerCase()")
+    long countByNameContainingIgnoreCase(String name);
+
+    @Cacheable(cacheNames = CacheConfig.PERSON_COUNTS, key = "'all'")
+    long count();
 }
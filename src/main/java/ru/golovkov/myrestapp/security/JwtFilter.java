@@ -6,7 +6,8 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -22,13 +23,18 @@ import ru.golovkov.myrestapp.service.PersonDetailsService;
 import java.io.IOException;
 
 @Component
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class JwtFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final ObjectMapper objectMapper;
     private final PersonDetailsService personDetailsService;
 
+    @Value("${app.people-url}")
+    private String peopleUrl;
+    @Value("${app.jwt-strict-admin-check}")
+    private boolean strictAdminCheck;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
@@ -41,8 +47,10 @@ public class JwtFilter extends OncePerRequestFilter {
                 return;
             } else {
                 try {
-                    String username = jwtUtil.verifyTokenAndGetUsernameClaim(jwt);
-                    UserDetails userDetails = personDetailsService.loadUserByUsername(username);
+                    PersonDetails personDetails = jwtUtil.verifyTokenAndGetPersonDetails(jwt);
+                    UserDetails userDetails = strictAdminCheck && isAdminRequest(request)
+                            ? loadAndMatchPersonDetails(personDetails)
+                            : personDetails;
 
                     UsernamePasswordAuthenticationToken authToken =
                             new UsernamePasswordAuthenticationToken(userDetails,
@@ -61,6 +69,20 @@ public class JwtFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private boolean isAdminRequest(HttpServletRequest request) {
+        return request.getServletPath().startsWith(STR."\{peopleUrl}/admin");
+    }
+
+    private UserDetails loadAndMatchPersonDetails(PersonDetails tokenPersonDetails) {
+        PersonDetails personDetails = (PersonDetails) personDetailsService
+                .loadUserByUsername(tokenPersonDetails.getUsername());
+        Long tokenPersonId = tokenPersonDetails.getPerson().getId();
+        if (!personDetails.getPerson().getId().equals(tokenPersonId)) {
+            throw new PersonNotFoundException(tokenPersonId);
+        }
+        return personDetails;
+    }
+
     private void setBadRequestInvalidJwtResponse(HttpServletResponse response, RuntimeException e) throws IOException {
         response.setStatus(HttpStatus.BAD_REQUEST.value());
         response.setContentType(MediaType.APPLICATION_JSON_VALUE);
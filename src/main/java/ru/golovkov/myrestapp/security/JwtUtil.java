@@ -3,44 +3,101 @@ package ru.golovkov.myrestapp.security;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import ru.golovkov.myrestapp.model.entity.Person;
+import ru.golovkov.myrestapp.model.entity.UserRole;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Component
 public class JwtUtil {
 
-    @Value("${app.jwt-secret}")
-    private String secret;
     private static final String ISSUER = "igor";
     private static final String SUBJECT = "User Details";
-    private static final String CLAIM_NAME = "username";
+    private static final String USERNAME_CLAIM = "username";
+    private static final String ID_CLAIM = "id";
+    private static final String ROLE_CLAIM = "role";
 
-    public String generateToken(String username) {
+    private final String signingKeyId;
+    private final Algorithm signingAlgorithm;
+    private final Map<String, JWTVerifier> verifiersByKeyId;
+
+    // A node only accepts kids of secrets it knows, so see app.jwt-previous-secrets for how to rotate.
+    public JwtUtil(@Value("${app.jwt-secret}") String secret,
+                   @Value("${app.jwt-previous-secrets:}") List<String> previousSecrets) {
+        signingKeyId = keyIdOf(secret);
+        signingAlgorithm = Algorithm.HMAC256(secret);
+        Map<String, JWTVerifier> verifiers = new LinkedHashMap<>();
+        verifiers.put(signingKeyId, buildVerifier(signingAlgorithm));
+        previousSecrets.stream()
+                .filter(previousSecret -> !previousSecret.isBlank())
+                .forEach(previousSecret -> verifiers.putIfAbsent(
+                        keyIdOf(previousSecret),
+                        buildVerifier(Algorithm.HMAC256(previousSecret))
+                ));
+        verifiersByKeyId = Map.copyOf(verifiers);
+    }
+
+    public String generateToken(Person person) {
         Date expirationDate = Date.from(ZonedDateTime.now().plusMinutes(60).toInstant());
         return JWT
                 .create()
+                .withKeyId(signingKeyId)
                 .withSubject(SUBJECT)
-                .withClaim(CLAIM_NAME, username)
+                .withClaim(USERNAME_CLAIM, person.getName())
+                .withClaim(ID_CLAIM, person.getId())
+                .withClaim(ROLE_CLAIM, person.getRole().name())
                 .withIssuer(ISSUER)
                 .withIssuedAt(new Date())
                 .withNotBefore(ZonedDateTime.now().toInstant())
                 .withExpiresAt(expirationDate)
-                .sign(Algorithm.HMAC256(secret));
+                .sign(signingAlgorithm);
+    }
+
+    public PersonDetails verifyTokenAndGetPersonDetails(String token) {
+        DecodedJWT unverifiedJwt = JWT.decode(token);
+        String keyId = unverifiedJwt.getKeyId() == null ? signingKeyId : unverifiedJwt.getKeyId();
+        JWTVerifier jwtVerifier = verifiersByKeyId.get(keyId);
+        if (jwtVerifier == null) {
+            throw new JWTVerificationException(STR."Unknown JWT key id '\{keyId}'");
+        }
+        DecodedJWT decodedJwt = jwtVerifier.verify(unverifiedJwt);
+        Person person = new Person();
+        person.setId(decodedJwt.getClaim(ID_CLAIM).asLong());
+        person.setName(decodedJwt.getClaim(USERNAME_CLAIM).asString());
+        person.setRole(UserRole.valueOf(decodedJwt.getClaim(ROLE_CLAIM).asString()));
+        return new PersonDetails(person);
     }
 
-    public String verifyTokenAndGetUsernameClaim(String token) {
-        JWTVerifier jwtVerifier = JWT
-                .require(Algorithm.HMAC256(secret))
+    private static JWTVerifier buildVerifier(Algorithm algorithm) {
+        return JWT
+                .require(algorithm)
                 .withSubject(SUBJECT)
                 .withIssuer(ISSUER)
+                .withClaimPresence(USERNAME_CLAIM)
+                .withClaimPresence(ID_CLAIM)
+                .withClaimPresence(ROLE_CLAIM)
                 .build();
-        DecodedJWT decodedJwt = jwtVerifier.verify(token);
-        return decodedJwt
-                .getClaim(CLAIM_NAME)
-                .asString();
+    }
+
+    private static String keyIdOf(String secret) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
@@ -1,18 +1,43 @@
 package ru.golovkov.myrestapp.service;
 
 import org.springframework.data.domain.Pageable;
+import ru.golovkov.myrestapp.model.dto.MessageSubmission;
 import ru.golovkov.myrestapp.model.dto.request.MessageRequestDto;
+import ru.golovkov.myrestapp.model.dto.request.MessageSearchMode;
 import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.MessageScrollResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.MessageSinceResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.MessageSyncResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.SliceResponseDto;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface MessageService extends CrudService<MessageRequestDto, MessageResponseDto> {
 
-    List<MessageResponseDto> getListFromSenderByIdAndContent(Long receiverId, Long senderId, String content, Pageable pageable);
+    MessageSubmission submit(MessageRequestDto requestDto, boolean waitForDurability);
 
-    List<MessageResponseDto> getListWithSenderByIdsAndContent(Long receiverId, Long senderId, String content, Pageable pageable);
+    List<MessageResponseDto> createAll(List<MessageRequestDto> requestDtoList);
 
-    List<MessageResponseDto> getListFromSenderById(Long receiverId, Long senderId, Pageable pageable);
+    SliceResponseDto<MessageResponseDto> getListFromSenderByIdAndContent(Long receiverId, Long senderId, String content, MessageSearchMode searchMode, Pageable pageable);
 
-    List<MessageResponseDto> getListWithSenderByIds(Long receiverId, Long senderId, Pageable pageable);
+    SliceResponseDto<MessageResponseDto> getListWithSenderByIdsAndContent(Long receiverId, Long senderId, String content, MessageSearchMode searchMode, Pageable pageable);
+
+    SliceResponseDto<MessageResponseDto> getListFromSenderById(Long receiverId, Long senderId, boolean withTotal, Pageable pageable);
+
+    SliceResponseDto<MessageResponseDto> getListWithSenderByIds(Long receiverId, Long senderId, boolean withTotal, Pageable pageable);
+
+    CompletableFuture<MessageSinceResponseDto> getListWithSenderSince(Long receiverId, Long senderId, String cursor, Duration wait);
+
+    MessageSyncResponseDto getChangesWithSenderByIds(Long receiverId, Long senderId, String syncToken, int size);
+
+    MessageResponseDto deleteById(Long id, Long senderId);
+
+    int deleteByPersonId(Long personId, int limit);
+
+    void exportWithSenderByIds(Long receiverId, Long senderId, Consumer<MessageResponseDto> consumer);
+
+    MessageScrollResponseDto getScrollWithSenderByIds(Long receiverId, Long senderId, String before, String after, int size);
 }
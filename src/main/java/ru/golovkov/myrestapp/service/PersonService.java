@@ -2,7 +2,10 @@ package ru.golovkov.myrestapp.service;
 
 import org.springframework.data.domain.Pageable;
 import ru.golovkov.myrestapp.model.dto.request.PersonRequestDto;
+import ru.golovkov.myrestapp.model.dto.response.JwtResponseDto;
 import ru.golovkov.myrestapp.model.dto.response.PersonResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.PersonSuggestionDto;
+import ru.golovkov.myrestapp.model.dto.response.SliceResponseDto;
 
 import java.util.List;
 
@@ -10,10 +13,14 @@ public interface PersonService extends CrudService<PersonRequestDto, PersonRespo
 
     PersonResponseDto getByName(String name);
 
-    List<PersonResponseDto> getAllByNameContaining(String name, Pageable pageable);
+    SliceResponseDto<PersonResponseDto> getAllByNameContaining(String name, boolean withTotal, Pageable pageable);
+
+    List<PersonSuggestionDto> suggestByNamePrefix(String prefix, int limit);
 
     PersonResponseDto updateByName(PersonRequestDto personRequestDto, String name);
 
+    JwtResponseDto updateByIdAndIssueToken(PersonRequestDto personRequestDto, Long id);
+
     void deleteByName(String name);
 
     PersonResponseDto upgradeRole(String rawPassword, Long id);
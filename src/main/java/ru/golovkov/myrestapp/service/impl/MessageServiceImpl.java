@@ -1,35 +1,134 @@
 package ru.golovkov.myrestapp.service.impl;
 
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import ru.golovkov.myrestapp.cache.ConversationTailCache;
+import ru.golovkov.myrestapp.cache.SingleFlight;
 import ru.golovkov.myrestapp.exception.entity.MessageNotFoundException;
 import ru.golovkov.myrestapp.exception.entity.MessageOperationForbiddenException;
+import ru.golovkov.myrestapp.exception.entity.MessageOperationForbiddenException.OperationType;
+import ru.golovkov.myrestapp.exception.httpcommon.BadRequestException;
+import ru.golovkov.myrestapp.job.MessageWriteBehindWriter;
 import ru.golovkov.myrestapp.mapper.MessageMapper;
+import ru.golovkov.myrestapp.model.dto.MessageCursor;
+import ru.golovkov.myrestapp.model.dto.MessageSinceCursor;
+import ru.golovkov.myrestapp.model.dto.MessageSubmission;
+import ru.golovkov.myrestapp.model.dto.MessageSyncToken;
 import ru.golovkov.myrestapp.model.dto.request.MessageRequestDto;
+import ru.golovkov.myrestapp.model.dto.request.MessageSearchMode;
 import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.MessageScrollResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.MessageSinceResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.MessageSyncResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.SliceResponseDto;
 import ru.golovkov.myrestapp.model.entity.Message;
+import ru.golovkov.myrestapp.model.projection.MessageChangeView;
+import ru.golovkov.myrestapp.model.projection.MessageMutationView;
+import ru.golovkov.myrestapp.model.projection.MessageView;
+import ru.golovkov.myrestapp.realtime.MessageEvent;
+import ru.golovkov.myrestapp.realtime.MessageEventType;
+import ru.golovkov.myrestapp.realtime.MessageLongPollRegistry;
 import ru.golovkov.myrestapp.repository.MessageRepository;
 import ru.golovkov.myrestapp.service.MessageService;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class MessageServiceImpl implements MessageService {
 
+    private static final int MAX_SCROLL_SIZE = 100;
+    private static final int MAX_BULK_SIZE = 1000;
+    private static final int MAX_SINCE_SIZE = 100;
+    private static final Duration MAX_SINCE_WAIT = Duration.ofSeconds(30);
+    private static final int MAX_SYNC_SIZE = 1000;
+    private static final String FIRST_PAGE_FLIGHT = "conversationFirstPages";
+
     private final MessageRepository messageRepository;
     private final MessageMapper messageMapper;
+    private final ObjectProvider<MessageWriteBehindWriter> messageWriteBehindWriter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MessageLongPollRegistry messageLongPollRegistry;
+    private final ConversationTailCache conversationTailCache;
+    private final SingleFlight singleFlight;
+
+    @Value("${app.messages.tombstones.retention}")
+    private Duration tombstoneRetention;
 
     @Override
     public MessageResponseDto create(MessageRequestDto requestDto) {
-        Message message = messageMapper.requestDtoToEntity(requestDto);
-        message.setSentAt(LocalDateTime.now());
+        Message message = newMessage(requestDto, LocalDateTime.now());
         message = messageRepository.save(message);
-        return messageMapper.entityToResponseDto(message);
+        return publishEvent(MessageEventType.CREATED, message);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public MessageSubmission submit(MessageRequestDto requestDto, boolean waitForDurability) {
+        MessageWriteBehindWriter writer = messageWriteBehindWriter.getIfAvailable();
+        Message message = newMessage(requestDto, LocalDateTime.now());
+        if (writer == null) {
+            return new MessageSubmission(publishEvent(MessageEventType.CREATED, messageRepository.save(message)), true);
+        }
+        CompletableFuture<Message> written = writer.submit(message)
+                .thenApply(writtenMessage -> {
+                    publishEvent(MessageEventType.CREATED, writtenMessage);
+                    return writtenMessage;
+                });
+        if (waitForDurability) {
+            try {
+                written.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+        return new MessageSubmission(messageMapper.entityToResponseDto(message), waitForDurability);
+    }
+
+    @Override
+    public List<MessageResponseDto> createAll(List<MessageRequestDto> requestDtoList) {
+        if (requestDtoList.isEmpty() || requestDtoList.size() > MAX_BULK_SIZE) {
+            throw new BadRequestException(STR."Number of messages must be between 1 and \{MAX_BULK_SIZE}");
+        }
+        LocalDateTime sentAt = LocalDateTime.now();
+        List<Message> messageList = requestDtoList.stream()
+                .map(requestDto -> {
+                    if (requestDto.getReceiverId() == null || requestDto.getContent() == null || requestDto.getContent().isBlank()) {
+                        throw new BadRequestException("Each message must have a receiver and non-blank content");
+                    }
+                    return newMessage(requestDto, sentAt);
+                })
+                .toList();
+        messageRepository.lockConversations(messageList.stream().map(Message::getConversationKey).toArray(String[]::new));
+        messageList = messageRepository.saveAll(messageList);
+        List<MessageResponseDto> messageResponseDtoList = messageMapper.entityListToResponseDtoList(messageList);
+        for (int i = 0; i < messageList.size(); i++) {
+            eventPublisher.publishEvent(new MessageEvent(
+                    MessageEventType.CREATED,
+                    messageResponseDtoList.get(i),
+                    messageList.get(i).getReceiver().getId()
+            ));
+        }
+        return messageResponseDtoList;
     }
 
     @Override
@@ -46,63 +145,249 @@ public class MessageServiceImpl implements MessageService {
 
     @Transactional(readOnly = true)
     @Override
-    public List<MessageResponseDto> getListFromSenderByIdAndContent(Long receiverId, Long senderId, String content, Pageable pageable) {
-        List<Message> messageList = messageRepository
-                .findAllByReceiver_IdAndSender_IdAndContentContainingIgnoreCase(receiverId, senderId, content, pageable)
-                .toList();
-        throwExceptionIfMessageListIsEmpty(messageList);
-        return messageMapper.entityListToResponseDtoList(messageList);
+    public SliceResponseDto<MessageResponseDto> getListFromSenderByIdAndContent(Long receiverId, Long senderId, String content, MessageSearchMode searchMode, Pageable pageable) {
+        Pageable rankedPageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        Slice<MessageView> messageViewSlice = switch (searchMode) {
+            case SUBSTRING -> messageRepository
+                    .searchByReceiverIdAndSenderIdAndSubstring(receiverId, senderId, content, escapeLikePattern(content), rankedPageable);
+            case WORDS -> messageRepository
+                    .searchByReceiverIdAndSenderIdAndWords(receiverId, senderId, content, rankedPageable);
+        };
+        throwExceptionIfMessageListIsEmpty(messageViewSlice.getContent());
+        return new SliceResponseDto<>(
+                messageMapper.viewListToResponseDtoList(messageViewSlice.getContent()),
+                messageViewSlice.hasNext(),
+                null
+        );
     }
 
     @Transactional(readOnly = true)
     @Override
-    public List<MessageResponseDto> getListWithSenderByIdsAndContent(Long receiverId, Long senderId, String content, Pageable pageable) {
-        List<Message> messageList = messageRepository
-                .findAllWithSenderByIdsAndContent(receiverId, senderId, content, pageable)
-                .toList();
-        throwExceptionIfMessageListIsEmpty(messageList);
-        return messageMapper.entityListToResponseDtoList(messageList);
+    public SliceResponseDto<MessageResponseDto> getListWithSenderByIdsAndContent(Long receiverId, Long senderId, String content, MessageSearchMode searchMode, Pageable pageable) {
+        String conversationKey = Message.conversationKeyOf(receiverId, senderId);
+        Pageable rankedPageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        Slice<MessageView> messageViewSlice = switch (searchMode) {
+            case SUBSTRING -> messageRepository
+                    .searchByConversationKeyAndSubstring(conversationKey, content, escapeLikePattern(content), rankedPageable);
+            case WORDS -> messageRepository
+                    .searchByConversationKeyAndWords(conversationKey, content, rankedPageable);
+        };
+        throwExceptionIfMessageListIsEmpty(messageViewSlice.getContent());
+        return new SliceResponseDto<>(
+                messageMapper.viewListToResponseDtoList(messageViewSlice.getContent()),
+                messageViewSlice.hasNext(),
+                null
+        );
     }
 
     @Transactional(readOnly = true)
     @Override
-    public List<MessageResponseDto> getListFromSenderById(Long receiverId, Long senderId, Pageable pageable) {
-        List<Message> messageList = messageRepository
-                .findAllByReceiver_IdAndSender_Id(receiverId, senderId, pageable)
-                .toList();
-        throwExceptionIfMessageListIsEmpty(messageList);
-        return messageMapper.entityListToResponseDtoList(messageList);
+    public SliceResponseDto<MessageResponseDto> getListFromSenderById(Long receiverId, Long senderId, boolean withTotal, Pageable pageable) {
+        Slice<MessageResponseDto> messageSlice = messageRepository
+                .findAllByReceiver_IdAndSender_Id(receiverId, senderId, pageable);
+        throwExceptionIfMessageListIsEmpty(messageSlice.getContent());
+        Long totalElements = withTotal ? messageRepository.countByReceiver_IdAndSender_Id(receiverId, senderId) : null;
+        return new SliceResponseDto<>(messageSlice.getContent(), messageSlice.hasNext(), totalElements);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public SliceResponseDto<MessageResponseDto> getListWithSenderByIds(Long receiverId, Long senderId, boolean withTotal, Pageable pageable) {
+        String conversationKey = Message.conversationKeyOf(receiverId, senderId);
+        // Readers of a popular conversation ask for its first page all at once, so they share one load of it.
+        Slice<MessageResponseDto> messageSlice = pageable.getPageNumber() == 0
+                ? singleFlight.execute(FIRST_PAGE_FLIGHT, List.of(conversationKey, pageable),
+                        () -> findPageByConversationKey(conversationKey, pageable))
+                : findPageByConversationKey(conversationKey, pageable);
+        throwExceptionIfMessageListIsEmpty(messageSlice.getContent());
+        Long totalElements = withTotal ? messageRepository.countByConversationKey(conversationKey) : null;
+        return new SliceResponseDto<>(messageSlice.getContent(), messageSlice.hasNext(), totalElements);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public CompletableFuture<MessageSinceResponseDto> getListWithSenderSince(Long receiverId, Long senderId, String cursor, Duration wait) {
+        if (wait.isNegative() || wait.compareTo(MAX_SINCE_WAIT) > 0) {
+            throw new BadRequestException(STR."Wait must be between 0s and \{MAX_SINCE_WAIT.toSeconds()}s");
+        }
+        String conversationKey = Message.conversationKeyOf(receiverId, senderId);
+        // Without a cursor the client starts from the changes committed from now on.
+        long since = cursor != null
+                ? MessageSinceCursor.decode(cursor).changeSeq()
+                : messageRepository.findLastChangeSeqByConversationKey(conversationKey);
+        if (wait.isZero()) {
+            return CompletableFuture.completedFuture(findSince(conversationKey, since));
+        }
+        CompletableFuture<Boolean> changed = messageLongPollRegistry.await(conversationKey, wait);
+        MessageSinceResponseDto messageSince = findSince(conversationKey, since);
+        if (!messageSince.getMessages().isEmpty()) {
+            changed.complete(false);
+            return CompletableFuture.completedFuture(messageSince);
+        }
+        return changed.thenApply(hasChanged -> hasChanged ? findSince(conversationKey, since) : messageSince);
     }
 
     @Transactional(readOnly = true)
     @Override
-    public List<MessageResponseDto> getListWithSenderByIds(Long receiverId, Long senderId, Pageable pageable) {
-        List<Message> messageList = messageRepository
-                .findAllWithSenderByIds(receiverId, senderId, pageable)
+    public MessageSyncResponseDto getChangesWithSenderByIds(Long receiverId, Long senderId, String syncToken, int size) {
+        if (size < 1 || size > MAX_SYNC_SIZE) {
+            throw new BadRequestException(STR."Size must be between 1 and \{MAX_SYNC_SIZE}");
+        }
+        Instant now = Instant.now();
+        MessageSyncToken token = syncToken != null ? MessageSyncToken.decode(syncToken) : null;
+        boolean fullResync = token == null || token.issuedAt().isBefore(now.minus(tombstoneRetention));
+        long since = fullResync ? 0 : token.changeSeq();
+        List<MessageChangeView> changeList = messageRepository
+                .findChangesByConversationKey(Message.conversationKeyOf(receiverId, senderId), since, !fullResync, size + 1);
+        boolean hasMore = changeList.size() > size;
+        if (hasMore) {
+            changeList = changeList.subList(0, size);
+        }
+        List<MessageResponseDto> upserts = messageMapper.viewListToResponseDtoList(changeList.stream()
+                .filter(change -> !change.isDeleted())
+                .map(MessageView.class::cast)
+                .toList());
+        List<Long> deletedIds = changeList.stream()
+                .filter(MessageChangeView::isDeleted)
+                .map(MessageChangeView::getId)
                 .toList();
-        throwExceptionIfMessageListIsEmpty(messageList);
-        return messageMapper.entityListToResponseDtoList(messageList);
+        long nextChangeSeq = changeList.isEmpty() ? since : changeList.getLast().getChangeSeq();
+        // Until the client has caught up, tombstones older than this page may still be ahead of it,
+        // so the token keeps the time the catch-up started to bound how long they must be retained.
+        Instant issuedAt = hasMore && !fullResync ? token.issuedAt() : now;
+        return new MessageSyncResponseDto(
+                upserts,
+                deletedIds,
+                new MessageSyncToken(nextChangeSeq, issuedAt).encode(),
+                hasMore,
+                fullResync
+        );
     }
 
+    @Transactional(readOnly = true)
     @Override
-    public MessageResponseDto updateById(MessageRequestDto requestDto, Long messageId) {
-        Message message = getMessageById(messageId);
-        if (!message.getSender().getId().equals(requestDto.getSenderId())) {
-            throw new MessageOperationForbiddenException(
-                    MessageOperationForbiddenException.OperationType.EDITING,
-                    message.getSender().getId(),
-                    requestDto.getSenderId()
-            );
+    public void exportWithSenderByIds(Long receiverId, Long senderId, Consumer<MessageResponseDto> consumer) {
+        try (Stream<MessageResponseDto> messageStream = messageRepository
+                .streamByConversationKey(Message.conversationKeyOf(receiverId, senderId))) {
+            messageStream.forEach(consumer);
         }
-        messageMapper.updateEntityFromRequestDto(message, requestDto);
-        message = messageRepository.save(message);
-        return messageMapper.entityToResponseDto(message);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public MessageScrollResponseDto getScrollWithSenderByIds(Long receiverId, Long senderId, String before, String after, int size) {
+        if (before != null && after != null) {
+            throw new BadRequestException("Only one of 'before' and 'after' cursors can be specified");
+        }
+        if (size < 1 || size > MAX_SCROLL_SIZE) {
+            throw new BadRequestException(STR."Size must be between 1 and \{MAX_SCROLL_SIZE}");
+        }
+        String conversationKey = Message.conversationKeyOf(receiverId, senderId);
+        List<MessageResponseDto> messageList;
+        boolean hasMore;
+        if (after != null) {
+            MessageCursor cursor = MessageCursor.decode(after);
+            messageList = messageRepository
+                    .findByConversationKeyAfter(conversationKey, cursor.sentAt(), cursor.id(), size + 1);
+            hasMore = messageList.size() > size;
+            if (hasMore) {
+                messageList = messageList.subList(0, size);
+            }
+        } else {
+            if (before != null) {
+                MessageCursor cursor = MessageCursor.decode(before);
+                messageList = messageRepository
+                        .findByConversationKeyBefore(conversationKey, cursor.sentAt(), cursor.id(), size + 1);
+            } else {
+                messageList = messageRepository.findLatestByConversationKey(conversationKey, size + 1);
+            }
+            hasMore = messageList.size() > size;
+            if (hasMore) {
+                messageList = messageList.subList(1, messageList.size());
+            }
+        }
+        if (messageList.isEmpty()) {
+            // Running past either end of a cursor is the normal end of scrolling; only an empty conversation is missing.
+            if (before == null && after == null) {
+                throw new MessageNotFoundException();
+            }
+            return new MessageScrollResponseDto(messageList, after != null ? after : before, false);
+        }
+        MessageResponseDto boundary = after != null ? messageList.getLast() : messageList.getFirst();
+        String nextCursor = new MessageCursor(boundary.getSentAt(), boundary.getId()).encode();
+        return new MessageScrollResponseDto(messageList, nextCursor, hasMore);
+    }
+
+    @Override
+    public MessageResponseDto updateById(MessageRequestDto requestDto, Long messageId) {
+        MessageMutationView message = messageRepository
+                .updateContentByIdAndSenderId(messageId, requestDto.getSenderId(), requestDto.getContent())
+                .orElseThrow(() -> mutationRejected(messageId, requestDto.getSenderId(), OperationType.EDITING));
+        return publishEvent(MessageEventType.UPDATED, message);
     }
 
     @Override
     public void deleteById(Long id) {
-        throwExceptionIfNoMessageExistsById(id);
-        messageRepository.deleteById(id);
+        Message message = getMessageById(id);
+        messageRepository.delete(message);
+        publishEvent(MessageEventType.DELETED, message);
+    }
+
+    @Override
+    public MessageResponseDto deleteById(Long id, Long senderId) {
+        MessageMutationView message = messageRepository
+                .deleteByIdAndSenderId(id, senderId)
+                .orElseThrow(() -> mutationRejected(id, senderId, OperationType.DELETING));
+        return publishEvent(MessageEventType.DELETED, message);
+    }
+
+    @Override
+    public int deleteByPersonId(Long personId, int limit) {
+        List<MessageMutationView> messageList = messageRepository.softDeleteByPersonId(personId, limit);
+        messageList.forEach(message -> publishEvent(MessageEventType.DELETED, message));
+        return messageList.size();
+    }
+
+    private MessageResponseDto publishEvent(MessageEventType type, Message message) {
+        MessageResponseDto messageResponseDto = messageMapper.entityToResponseDto(message);
+        eventPublisher.publishEvent(new MessageEvent(type, messageResponseDto, message.getReceiver().getId()));
+        return messageResponseDto;
+    }
+
+    private MessageResponseDto publishEvent(MessageEventType type, MessageMutationView message) {
+        MessageResponseDto messageResponseDto = messageMapper.viewToResponseDto(message);
+        eventPublisher.publishEvent(new MessageEvent(type, messageResponseDto, message.getReceiverId()));
+        return messageResponseDto;
+    }
+
+    // Only runs when the conditional statement matched no row, to tell a missing message from someone else's.
+    private RuntimeException mutationRejected(Long id, Long principalId, OperationType operationType) {
+        return messageRepository.findSenderIdById(id)
+                .<RuntimeException>map(senderId -> new MessageOperationForbiddenException(operationType, principalId, senderId))
+                .orElseGet(() -> new MessageNotFoundException(id));
+    }
+
+    private Message newMessage(MessageRequestDto requestDto, LocalDateTime sentAt) {
+        Message message = messageMapper.requestDtoToEntity(requestDto);
+        message.setSentAt(sentAt);
+        message.setConversationKey(Message.conversationKeyOf(message.getSender().getId(), message.getReceiver().getId()));
+        return message;
+    }
+
+    // change_seq is taken under a per-conversation lock, so unlike ids it grows in commit order.
+    private MessageSinceResponseDto findSince(String conversationKey, long since) {
+        List<MessageChangeView> changeList = messageRepository
+                .findChangesByConversationKey(conversationKey, since, false, MAX_SINCE_SIZE);
+        long nextChangeSeq = changeList.isEmpty() ? since : changeList.getLast().getChangeSeq();
+        return new MessageSinceResponseDto(
+                messageMapper.viewListToResponseDtoList(changeList.stream().map(MessageView.class::cast).toList()),
+                new MessageSinceCursor(nextChangeSeq).encode()
+        );
+    }
+
+    private Slice<MessageResponseDto> findPageByConversationKey(String conversationKey, Pageable pageable) {
+        return conversationTailCache.findNewestPage(conversationKey, pageable)
+                .orElseGet(() -> messageRepository.findAllByConversationKey(conversationKey, pageable));
     }
 
     private Message getMessageById(Long id) {
@@ -111,13 +396,14 @@ public class MessageServiceImpl implements MessageService {
                 .orElseThrow(() -> new MessageNotFoundException(id));
     }
 
-    private void throwExceptionIfNoMessageExistsById(Long id) {
-        if (!messageRepository.existsById(id)) {
-            throw new MessageNotFoundException(id);
-        }
+    private String escapeLikePattern(String content) {
+        return content
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
     }
 
-    private void throwExceptionIfMessageListIsEmpty(List<Message> messageList) {
+    private void throwExceptionIfMessageListIsEmpty(List<?> messageList) {
         if (messageList.isEmpty()) {
             throw new MessageNotFoundException();
         }
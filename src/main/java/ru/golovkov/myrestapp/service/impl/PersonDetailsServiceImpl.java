@@ -1,9 +1,11 @@
 package ru.golovkov.myrestapp.service.impl;
 
 import lombok.AllArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.golovkov.myrestapp.config.CacheConfig;
 import ru.golovkov.myrestapp.exception.entity.PersonNotFoundException;
 import ru.golovkov.myrestapp.model.entity.Person;
 import ru.golovkov.myrestapp.repository.PersonRepository;
@@ -16,6 +18,7 @@ public class PersonDetailsServiceImpl implements PersonDetailsService {
 
     private final PersonRepository personRepository;
 
+    @Cacheable(CacheConfig.PERSON_DETAILS)
     @Transactional(readOnly = true)
     @Override
     public UserDetails loadUserByUsername(String name) {
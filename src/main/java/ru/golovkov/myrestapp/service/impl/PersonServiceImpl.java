@@ -1,35 +1,63 @@
 package ru.golovkov.myrestapp.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.golovkov.myrestapp.cache.PersonNameIndex;
+import ru.golovkov.myrestapp.cache.SingleFlight;
+import ru.golovkov.myrestapp.config.CacheConfig;
 import ru.golovkov.myrestapp.exception.entity.PersonNotFoundException;
 import ru.golovkov.myrestapp.exception.entity.WrongPasswordException;
 import ru.golovkov.myrestapp.exception.httpcommon.BadRequestException;
 import ru.golovkov.myrestapp.mapper.PersonMapper;
 import ru.golovkov.myrestapp.model.dto.request.PersonRequestDto;
+import ru.golovkov.myrestapp.model.dto.response.JwtResponseDto;
 import ru.golovkov.myrestapp.model.dto.response.PersonResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.PersonSuggestionDto;
+import ru.golovkov.myrestapp.model.dto.response.SliceResponseDto;
 import ru.golovkov.myrestapp.model.entity.Person;
 import ru.golovkov.myrestapp.model.entity.UserRole;
 import ru.golovkov.myrestapp.repository.PersonRepository;
+import ru.golovkov.myrestapp.security.JwtUtil;
 import ru.golovkov.myrestapp.service.PersonService;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 @Service
 @Transactional
 @RequiredArgsConstructor
 public class PersonServiceImpl implements PersonService {
 
+    private static final int MAX_SUGGESTIONS = 50;
+
     private final PersonRepository personRepository;
 
     private final PersonMapper personMapper;
 
     private final PasswordEncoder passwordEncoder;
 
+    private final CacheManager cacheManager;
+
+    private final JwtUtil jwtUtil;
+
+    private final PersonNameIndex personNameIndex;
+
+    private final SingleFlight singleFlight;
+
+    // Moves on every committed change of a person, see getProfile().
+    private final AtomicLong profileVersion = new AtomicLong();
+
     @Override
     public PersonResponseDto create(PersonRequestDto personRequestDto) {
         if (personRequestDto.getPassword() == null ||
@@ -47,19 +75,20 @@ public class PersonServiceImpl implements PersonService {
         person.setRole(UserRole.ROLE_BASE);
         person.setPassword(passwordEncoder.encode(personRequestDto.getPassword()));
         person = personRepository.save(person);
+        personNameIndex.put(person.getId(), person.getName());
         return personMapper.entityToResponseDto(person);
     }
 
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     @Override
     public PersonResponseDto getById(Long id) {
-        return personMapper.entityToResponseDto(getPersonById(id));
+        return getProfile(STR."id:\{id}", () -> getPersonById(id));
     }
 
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     @Override
     public PersonResponseDto getByName(String name) {
-        return personMapper.entityToResponseDto(getPersonByName(name));
+        return getProfile(STR."name:\{name}", () -> getPersonByName(name));
     }
 
     @Transactional(readOnly = true)
@@ -72,55 +101,102 @@ public class PersonServiceImpl implements PersonService {
 
     @Transactional(readOnly = true)
     @Override
-    public List<PersonResponseDto> getAllByNameContaining(String name, Pageable pageable) {
-        List<Person> personList;
-        if (name == null || name.isBlank()) {
-            personList = personRepository.findAll(pageable).getContent();
-        } else {
-            personList = personRepository
-                    .findAllByNameContainingIgnoreCase(pageable, name).getContent();
+    public SliceResponseDto<PersonResponseDto> getAllByNameContaining(String name, boolean withTotal, Pageable pageable) {
+        boolean withoutName = name == null || name.isBlank();
+        Slice<Person> personSlice = withoutName
+                ? personRepository.findAllBy(pageable)
+                : personRepository.findAllByNameContainingIgnoreCase(pageable, name);
+        throwExceptionIfPersonListIsEmpty(personSlice.getContent());
+        Long totalElements = null;
+        if (withTotal) {
+            totalElements = withoutName
+                    ? personRepository.count()
+                    : personRepository.countByNameContainingIgnoreCase(name);
         }
-        throwExceptionIfPersonListIsEmpty(personList);
-        return personMapper.entityListToResponseDtoList(personList);
+        return new SliceResponseDto<>(
+                personMapper.entityListToResponseDtoList(personSlice.getContent()),
+                personSlice.hasNext(),
+                totalElements
+        );
+    }
+
+    // The index is in memory, so no transaction and no connection are needed.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public List<PersonSuggestionDto> suggestByNamePrefix(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new BadRequestException("Prefix must not be blank");
+        }
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new BadRequestException(STR."Limit must be between 1 and \{MAX_SUGGESTIONS}");
+        }
+        return personNameIndex.findByPrefix(prefix, limit);
     }
 
     @Override
     public PersonResponseDto updateById(PersonRequestDto personRequestDto, Long id) {
         Person person = getPersonById(id);
+        evictPerson(id, person.getName());
         personMapper.updateEntityFromRequestDto(person, personRequestDto);
         if (personRequestDto.getPassword() != null && !personRequestDto.getPassword().isBlank()) {
             person.setPassword(passwordEncoder.encode(personRequestDto.getPassword()));
         }
         person = personRepository.save(person);
+        personNameIndex.put(person.getId(), person.getName());
         return personMapper.entityToResponseDto(person);
     }
 
     @Override
     public PersonResponseDto updateByName(PersonRequestDto personRequestDto, String name) {
         Person person = getPersonByName(name);
+        evictPerson(person.getId(), name);
         personMapper.updateEntityFromRequestDto(person, personRequestDto);
         if (personRequestDto.getPassword() != null && !personRequestDto.getPassword().isBlank()) {
             person.setPassword(passwordEncoder.encode(personRequestDto.getPassword()));
         }
         person = personRepository.save(person);
+        personNameIndex.put(person.getId(), person.getName());
         return personMapper.entityToResponseDto(person);
     }
 
+    @Override
+    public JwtResponseDto updateByIdAndIssueToken(PersonRequestDto personRequestDto, Long id) {
+        if (personRequestDto.getPassword() == null || personRequestDto.getPassword().isBlank()) {
+            throw new WrongPasswordException("Correct password is required to update user data");
+        }
+        Person person = getPersonById(id);
+        evictPerson(id, person.getName());
+        personMapper.updateEntityFromRequestDto(person, personRequestDto);
+        person.setPassword(passwordEncoder.encode(personRequestDto.getPassword()));
+        person = personRepository.save(person);
+        personNameIndex.put(person.getId(), person.getName());
+        return new JwtResponseDto(jwtUtil.generateToken(person));
+    }
+
     @Override
     public void deleteById(Long id) {
-        throwExceptionIfNoPersonExistsById(id);
-        personRepository.deleteById(id);
+        String name = personRepository
+                .softDeleteById(id)
+                .orElseThrow(() -> new PersonNotFoundException(id));
+        evictPerson(id, name);
+        evictDeletedEntity(id, name);
+        personNameIndex.remove(id);
     }
 
     @Override
     public void deleteByName(String name) {
-        throwExceptionIfNoPersonExistsByName(name);
-        personRepository.deleteByName(name);
+        Long id = personRepository
+                .softDeleteByName(name)
+                .orElseThrow(() -> new PersonNotFoundException(STR."No person with name '\{name}' was found"));
+        evictPerson(id, name);
+        evictDeletedEntity(id, name);
+        personNameIndex.remove(id);
     }
 
     @Override
     public PersonResponseDto upgradeRole(String rawPassword, Long id) {
         Person person = getPersonById(id);
+        evictPerson(id, person.getName());
         if (passwordEncoder.matches(rawPassword, person.getPassword())) {
             person.setRole(UserRole.ROLE_ADMIN);
         } else {
@@ -130,16 +206,58 @@ public class PersonServiceImpl implements PersonService {
         return personMapper.entityToResponseDto(person);
     }
 
-    private void throwExceptionIfNoPersonExistsById(Long id) {
-        if (!personRepository.existsById(id)) {
-            throw new PersonNotFoundException(id);
+    /**
+     * Reads a profile through the personProfiles cache. Concurrent misses of one key share a single query,
+     * and the callers waiting for it hold neither a lock nor a connection. A profile read just before a change
+     * commits can be put after the change has evicted it, so it is evicted again if the version moved meanwhile.
+     * The cache manager defers writes while transaction synchronization is active, which it is even here,
+     * so the put and the check go to the Caffeine cache itself; otherwise the put would land after the check.
+     */
+    private PersonResponseDto getProfile(String key, Supplier<Person> loader) {
+        Cache personProfilesCache = cacheManager.getCache(CacheConfig.PERSON_PROFILES);
+        PersonResponseDto profile = personProfilesCache.get(key, PersonResponseDto.class);
+        if (profile != null) {
+            return profile;
         }
+        @SuppressWarnings("unchecked")
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> profiles =
+                (com.github.benmanes.caffeine.cache.Cache<Object, Object>) personProfilesCache.getNativeCache();
+        return singleFlight.execute(CacheConfig.PERSON_PROFILES, key, () -> {
+            long version = profileVersion.get();
+            PersonResponseDto loadedProfile = personMapper.entityToResponseDto(loader.get());
+            profiles.put(key, loadedProfile);
+            if (profileVersion.get() != version) {
+                profiles.invalidate(key);
+            }
+            return loadedProfile;
+        });
     }
 
-    private void throwExceptionIfNoPersonExistsByName(String name) {
-        if (!personRepository.existsByName(name)) {
-            throw new PersonNotFoundException(STR."No person with name '\{name}' was found");
+    // Evictions are deferred until the transaction commits, so a concurrent read cannot cache the old state again.
+    private void evictPerson(Long id, String name) {
+        afterCommit(profileVersion::incrementAndGet);
+        Cache personDetailsCache = cacheManager.getCache(CacheConfig.PERSON_DETAILS);
+        if (personDetailsCache != null) {
+            personDetailsCache.evict(name);
         }
+        Cache personProfilesCache = cacheManager.getCache(CacheConfig.PERSON_PROFILES);
+        if (personProfilesCache != null) {
+            personProfilesCache.evict(STR."id:\{id}");
+            personProfilesCache.evict(STR."name:\{name}");
+        }
+    }
+
+    private void evictDeletedEntity(Long id, String name) {
+        afterCommit(() -> personRepository.evictFromSecondLevelCache(id, name));
+    }
+
+    private void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     private void throwExceptionIfPersonListIsEmpty(List<Person> personList) {
@@ -0,0 +1,19 @@
+CREATE TABLE people
+(
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    age               INTEGER,
+    email             VARCHAR(255) UNIQUE,
+    name              VARCHAR(255) UNIQUE,
+    password          VARCHAR(255),
+    registration_date DATE,
+    role              VARCHAR(255) CHECK (role IN ('ROLE_BASE', 'ROLE_ADMIN'))
+);
+
+CREATE TABLE messages
+(
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    content     VARCHAR(255),
+    sent_at     TIMESTAMP(6),
+    receiver_id BIGINT REFERENCES people (id),
+    sender_id   BIGINT REFERENCES people (id)
+);
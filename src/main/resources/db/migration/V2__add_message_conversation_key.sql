@@ -0,0 +1,6 @@
+ALTER TABLE messages
+    ADD COLUMN conversation_key VARCHAR(41);
+
+CREATE INDEX idx_messages_conversation_key_sent_at_id ON messages (conversation_key, sent_at, id);
+
+CREATE INDEX idx_messages_without_conversation_key ON messages (id) WHERE conversation_key IS NULL;
@@ -0,0 +1,8 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE messages
+    ADD COLUMN content_tsv TSVECTOR GENERATED ALWAYS AS (to_tsvector('simple', COALESCE(content, ''))) STORED;
+
+CREATE INDEX idx_messages_content_trgm ON messages USING gin (lower(content) gin_trgm_ops);
+
+CREATE INDEX idx_messages_content_tsv ON messages USING gin (content_tsv);
@@ -0,0 +1,13 @@
+ALTER TABLE people
+    ALTER COLUMN id DROP IDENTITY;
+
+ALTER TABLE messages
+    ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE people_seq INCREMENT BY 50;
+
+CREATE SEQUENCE messages_seq INCREMENT BY 50;
+
+SELECT setval('people_seq', COALESCE((SELECT MAX(id) FROM people), 0) + 50, false);
+
+SELECT setval('messages_seq', COALESCE((SELECT MAX(id) FROM messages), 0) + 50, false);
@@ -0,0 +1,33 @@
+CREATE SEQUENCE message_change_seq;
+
+ALTER TABLE messages
+    ADD COLUMN change_seq BIGINT,
+    ADD COLUMN deleted_at TIMESTAMP(6);
+
+UPDATE messages
+SET change_seq = nextval('message_change_seq');
+
+ALTER TABLE messages
+    ALTER COLUMN change_seq SET NOT NULL;
+
+CREATE INDEX idx_messages_conversation_key_change_seq ON messages (conversation_key, change_seq);
+
+CREATE INDEX idx_messages_deleted_at ON messages (deleted_at) WHERE deleted_at IS NOT NULL;
+
+-- Changes of one conversation take their change_seq under a transaction-scoped advisory lock,
+-- so within a conversation a smaller change_seq is always committed before a larger one
+-- and a sync token never skips a change that commits late.
+CREATE FUNCTION assign_message_change_seq() RETURNS TRIGGER AS
+$$
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext(NEW.conversation_key));
+    NEW.change_seq := nextval('message_change_seq');
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER messages_assign_change_seq
+    BEFORE INSERT OR UPDATE
+    ON messages
+    FOR EACH ROW
+EXECUTE FUNCTION assign_message_change_seq();
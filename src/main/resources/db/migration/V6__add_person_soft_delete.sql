@@ -0,0 +1,8 @@
+ALTER TABLE people
+    ADD COLUMN deleted_at TIMESTAMP(6);
+
+CREATE INDEX idx_people_deleted_at ON people (deleted_at) WHERE deleted_at IS NOT NULL;
+
+-- A deleted person's messages are purged in batches looked up by participant;
+-- the receiver side is served by the leading column of idx_messages_receiver_id_sender_id_sent_at.
+CREATE INDEX idx_messages_sender_id ON messages (sender_id);
@@ -0,0 +1,6 @@
+-- One direction of a dialog, paged by sent_at: findAllByReceiver_IdAndSender_Id, its count and search.
+CREATE INDEX idx_messages_receiver_id_sender_id_sent_at ON messages (receiver_id, sender_id, sent_at, id);
+
+-- Spring Data compares upper(name) for IgnoreCase, and a "containing" match is LIKE '%...%',
+-- which only a trigram index can serve.
+CREATE INDEX idx_people_name_trgm ON people USING gin (upper(name) gin_trgm_ops);
@@ -0,0 +1,61 @@
+package ru.golovkov.myrestapp.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.golovkov.myrestapp.model.entity.Person;
+import ru.golovkov.myrestapp.model.entity.UserRole;
+import ru.golovkov.myrestapp.security.JwtUtil;
+import ru.golovkov.myrestapp.security.PersonDetails;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "--enable-preview")
+@Threads(4)
+public class JwtUtilBenchmark {
+
+    private JwtUtil jwtUtil;
+    private Person person;
+    private String primaryToken;
+    private String previousToken;
+
+    @Setup
+    public void setUp() {
+        person = new Person();
+        person.setId(52L);
+        person.setName("benchmark");
+        person.setRole(UserRole.ROLE_BASE);
+        jwtUtil = new JwtUtil("primary-secret", List.of("previous-secret"));
+        primaryToken = jwtUtil.generateToken(person);
+        previousToken = new JwtUtil("previous-secret", List.of()).generateToken(person);
+    }
+
+    @Benchmark
+    public String issue() {
+        return jwtUtil.generateToken(person);
+    }
+
+    @Benchmark
+    public PersonDetails verify() {
+        return jwtUtil.verifyTokenAndGetPersonDetails(primaryToken);
+    }
+
+    @Benchmark
+    public PersonDetails verifyWithPreviousSecret() {
+        return jwtUtil.verifyTokenAndGetPersonDetails(previousToken);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtUtilBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,122 @@
+package ru.golovkov.myrestapp.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.unit.DataSize;
+import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
+import ru.golovkov.myrestapp.realtime.MessageEvent;
+import ru.golovkov.myrestapp.realtime.MessageEventType;
+import ru.golovkov.myrestapp.repository.MessageRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ConversationTailCacheTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 1, 12, 0);
+    private static final PageRequest FIRST_PAGE = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "sentAt"));
+
+    private MessageRepository messageRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private ConversationTailCache conversationTailCache;
+
+    @BeforeEach
+    void setUp() {
+        messageRepository = mock(MessageRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        conversationTailCache = new ConversationTailCache(messageRepository, meterRegistry, 3, DataSize.ofMegabytes(1));
+        when(messageRepository.findLatestByConversationKey(anyString(), anyInt()))
+                .thenReturn(List.of(newMessage(1L), newMessage(2L), newMessage(3L), newMessage(4L)));
+    }
+
+    @Test
+    void findNewestPage_SecondRead_ServedWithoutQuery() {
+        Slice<MessageResponseDto> first = conversationTailCache.findNewestPage("1:2", FIRST_PAGE).orElseThrow();
+        Slice<MessageResponseDto> second = conversationTailCache.findNewestPage("1:2", FIRST_PAGE).orElseThrow();
+
+        assertEquals(List.of(4L, 3L), ids(second));
+        assertTrue(second.hasNext());
+        assertEquals(first.getContent(), second.getContent());
+        verify(messageRepository, times(1)).findLatestByConversationKey("1:2", 4);
+        assertEquals(0.5, meterRegistry.get("messages.tail-cache.hit-ratio").gauge().value());
+        assertTrue(meterRegistry.get("messages.tail-cache.memory").gauge().value() > 0);
+    }
+
+    @Test
+    void findNewestPage_NotFirstPageOrOtherSort_NotServed() {
+        assertTrue(conversationTailCache.findNewestPage("1:2", PageRequest.of(1, 2, FIRST_PAGE.getSort())).isEmpty());
+        assertTrue(conversationTailCache.findNewestPage("1:2", PageRequest.of(0, 2, Sort.by("sentAt"))).isEmpty());
+        assertTrue(conversationTailCache.findNewestPage("1:2", PageRequest.of(0, 4, FIRST_PAGE.getSort())).isEmpty());
+
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void onMessageEvent_WritesThroughToCachedTail() {
+        conversationTailCache.findNewestPage("1:2", FIRST_PAGE);
+        MessageResponseDto edited = new MessageResponseDto(4L, "edited", 1L, NOW.plusMinutes(4));
+
+        conversationTailCache.onMessageEvent(new MessageEvent(MessageEventType.CREATED, newMessage(5L), 2L));
+        conversationTailCache.onMessageEvent(new MessageEvent(MessageEventType.UPDATED, edited, 2L));
+        conversationTailCache.onMessageEvent(new MessageEvent(MessageEventType.DELETED, newMessage(5L), 2L));
+        conversationTailCache.onMessageEvent(new MessageEvent(MessageEventType.CREATED, newMessage(6L), 3L));
+
+        Slice<MessageResponseDto> page = conversationTailCache.findNewestPage("1:2", FIRST_PAGE).orElseThrow();
+
+        assertEquals(List.of(4L, 3L), ids(page));
+        assertEquals("edited", page.getContent().getFirst().getContent());
+        verify(messageRepository, times(1)).findLatestByConversationKey(anyString(), anyInt());
+    }
+
+    @Test
+    void findNewestPage_TailShrunkByDeletes_ReloadsTail() {
+        conversationTailCache.findNewestPage("1:2", FIRST_PAGE);
+        conversationTailCache.onMessageEvent(new MessageEvent(MessageEventType.DELETED, newMessage(4L), 2L));
+        conversationTailCache.onMessageEvent(new MessageEvent(MessageEventType.DELETED, newMessage(3L), 2L));
+
+        conversationTailCache.findNewestPage("1:2", FIRST_PAGE);
+
+        verify(messageRepository, times(2)).findLatestByConversationKey("1:2", 4);
+    }
+
+    @Test
+    void findNewestPage_ShortConversation_HasNoNextPage() {
+        when(messageRepository.findLatestByConversationKey(anyString(), anyInt())).thenReturn(List.of(newMessage(1L)));
+
+        Slice<MessageResponseDto> page = conversationTailCache.findNewestPage("1:3", FIRST_PAGE).orElseThrow();
+        conversationTailCache.onMessageEvent(new MessageEvent(MessageEventType.CREATED, newMessage(2L), 3L));
+
+        assertEquals(List.of(1L), ids(page));
+        assertFalse(page.hasNext());
+        assertEquals(List.of(2L, 1L), ids(conversationTailCache.findNewestPage("1:3", FIRST_PAGE).orElseThrow()));
+    }
+
+    @Test
+    void findNewestPage_MemoryBudgetExceeded_EvictsTails() {
+        conversationTailCache = new ConversationTailCache(messageRepository, new SimpleMeterRegistry(), 3, DataSize.ofBytes(2000));
+
+        LongStream.range(0, 20).forEach(i -> conversationTailCache.findNewestPage(STR."1:\{i}", FIRST_PAGE));
+        assertTrue(conversationTailCache.getEstimatedMemory() <= 2000);
+        LongStream.range(0, 20).forEach(i -> conversationTailCache.findNewestPage(STR."1:\{i}", FIRST_PAGE));
+
+        verify(messageRepository, atLeast(36)).findLatestByConversationKey(anyString(), anyInt());
+    }
+
+    private List<Long> ids(Slice<MessageResponseDto> slice) {
+        return slice.getContent().stream().map(MessageResponseDto::getId).toList();
+    }
+
+    private MessageResponseDto newMessage(Long id) {
+        return new MessageResponseDto(id, "hello", 1L, NOW.plusMinutes(id));
+    }
+}
@@ -0,0 +1,77 @@
+package ru.golovkov.myrestapp.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.golovkov.myrestapp.model.dto.response.PersonSuggestionDto;
+import ru.golovkov.myrestapp.model.projection.PersonNameView;
+import ru.golovkov.myrestapp.repository.PersonRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class PersonNameIndexTest {
+
+    private PersonRepository personRepository;
+    private PersonNameIndex personNameIndex;
+
+    @BeforeEach
+    void setUp() {
+        personRepository = mock(PersonRepository.class);
+        personNameIndex = new PersonNameIndex(personRepository);
+        List<PersonNameView> viewList = List.of(
+                newView(1L, "Bob"),
+                newView(2L, "alice"),
+                newView(3L, "Alexander"),
+                newView(4L, "Алексей"),
+                newView(5L, null)
+        );
+        when(personRepository.findAllNames()).thenReturn(viewList);
+        personNameIndex.rebuild();
+    }
+
+    @Test
+    void findByPrefix_IgnoresCaseAndSortsByName() {
+        assertEquals(List.of(new PersonSuggestionDto(3L, "Alexander"), new PersonSuggestionDto(2L, "alice")),
+                personNameIndex.findByPrefix("AL", 10));
+        assertEquals(List.of(new PersonSuggestionDto(3L, "Alexander")), personNameIndex.findByPrefix("al", 1));
+        assertEquals(List.of(new PersonSuggestionDto(4L, "Алексей")), personNameIndex.findByPrefix("алЕК", 10));
+        assertEquals(List.of(), personNameIndex.findByPrefix("carl", 10));
+        assertEquals(4, personNameIndex.size());
+    }
+
+    @Test
+    void putAndRemove_KeepIndexCurrent() {
+        personNameIndex.put(6L, "Alina");
+        personNameIndex.put(1L, "Albert");
+        personNameIndex.remove(3L);
+        personNameIndex.remove(2L);
+
+        assertEquals(List.of(new PersonSuggestionDto(1L, "Albert"), new PersonSuggestionDto(6L, "Alina")),
+                personNameIndex.findByPrefix("al", 10));
+        assertEquals(List.of(), personNameIndex.findByPrefix("bob", 10));
+        assertEquals(3, personNameIndex.size());
+    }
+
+    @Test
+    void rebuild_ChangeCommittedWhileReading_IsNotLost() {
+        List<PersonNameView> viewList = List.of(newView(1L, "Bob"));
+        when(personRepository.findAllNames()).thenAnswer(invocation -> {
+            personNameIndex.put(7L, "Albina");
+            return viewList;
+        });
+
+        personNameIndex.rebuild();
+
+        assertEquals(List.of(new PersonSuggestionDto(7L, "Albina")), personNameIndex.findByPrefix("al", 10));
+        verify(personRepository, times(2)).findAllNames();
+    }
+
+    private PersonNameView newView(Long id, String name) {
+        PersonNameView view = mock(PersonNameView.class);
+        when(view.getId()).thenReturn(id);
+        when(view.getName()).thenReturn(name);
+        return view;
+    }
+}
@@ -0,0 +1,108 @@
+package ru.golovkov.myrestapp.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SingleFlight singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight(meterRegistry);
+    }
+
+    @Test
+    void execute_ConcurrentCallers_ShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(CALLERS)) {
+            List<Future<String>> results = IntStream.range(0, CALLERS)
+                    .mapToObj(i -> executor.submit(() -> singleFlight.execute("profiles", 1L, () -> {
+                        loads.incrementAndGet();
+                        await(release);
+                        return "profile";
+                    })))
+                    .toList();
+            awaitCoalesced(CALLERS - 1);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("profile", result.get(5, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, meterRegistry.get("single-flight.calls").tag("outcome", "loaded").counter().count());
+        assertEquals(1, meterRegistry.get("single-flight.loads").timer().count());
+        assertEquals(0, meterRegistry.get("single-flight.in-flight").gauge().value());
+    }
+
+    @Test
+    void execute_LoadFails_FollowersGetSameException() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("not found");
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            List<Future<Object>> results = IntStream.range(0, 2)
+                    .mapToObj(i -> executor.submit(() -> singleFlight.execute("profiles", 1L, () -> {
+                        await(release);
+                        throw failure;
+                    })))
+                    .toList();
+            awaitCoalesced(1);
+            release.countDown();
+
+            for (Future<Object> result : results) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertSame(failure, e.getCause());
+            }
+        }
+    }
+
+    @Test
+    void execute_FinishedFlight_IsNotReused() {
+        AtomicInteger loads = new AtomicInteger();
+
+        singleFlight.execute("profiles", 1L, loads::incrementAndGet);
+        singleFlight.execute("profiles", 1L, loads::incrementAndGet);
+        singleFlight.execute("pages", 1L, loads::incrementAndGet);
+
+        assertEquals(3, loads.get());
+    }
+
+    private void awaitCoalesced(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalesced() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, coalesced());
+    }
+
+    private double coalesced() {
+        Counter counter = meterRegistry.find("single-flight.calls").tag("outcome", "coalesced").counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -47,6 +47,7 @@ class AccountControllerTest {
     private static PersonRequestDto personRequestDto;
     private static PersonResponseDto personResponseDto;
     private static Person person;
+    private static Authentication authentication;
     @Autowired
     private MockMvc mockMvc;
     @MockBean
@@ -106,7 +107,7 @@ class AccountControllerTest {
 
         PersonDetails personDetails = new PersonDetails(person);
 
-        Authentication authentication = new Authentication() {
+        authentication = new Authentication() {
             @Override
             public Collection<? extends GrantedAuthority> getAuthorities() {
                 return personDetails.getAuthorities();
@@ -150,17 +151,20 @@ class AccountControllerTest {
     @Test
     @WithMockUser
     void getCurrentUser() {
+        when(personService.getById(person.getId())).thenReturn(personResponseDto);
+
         mockMvc.perform(get("/api/people/current-user")
                         .contentType(MediaType.APPLICATION_JSON)
                 )
                 .andExpect(status().isOk())
-                .andExpect(content().json(objectMapper.writeValueAsString(person)));
+                .andExpect(content().json(objectMapper.writeValueAsString(personResponseDto)));
     }
 
     @SneakyThrows
     @Test
     void postLogin() {
-        when(jwtUtil.generateToken(any(String.class))).thenReturn(jwtToken);
+        when(authenticationManager.authenticate(any())).thenReturn(authentication);
+        when(jwtUtil.generateToken(person)).thenReturn(jwtToken);
 
         JwtResponseDto jwtResponseDto = new JwtResponseDto(jwtToken);
         mockMvc.perform(post("/api/people/public/login")
@@ -196,9 +200,8 @@ class AccountControllerTest {
     @Test
     @WithMockUser(roles = "BASE")
     void updateCurrentUser() {
-        when(personService.updateById(any(PersonRequestDto.class), anyLong())).thenReturn(personResponseDto);
-        when(jwtUtil.generateToken(any(String.class))).thenReturn(jwtToken);
         JwtResponseDto jwtResponseDto = new JwtResponseDto(jwtToken);
+        when(personService.updateByIdAndIssueToken(any(PersonRequestDto.class), anyLong())).thenReturn(jwtResponseDto);
 
         mockMvc.perform(put("/api/people/current-user")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -15,25 +15,44 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.golovkov.myrestapp.model.dto.MessageSubmission;
+import ru.golovkov.myrestapp.model.dto.request.MessageBulkItemRequestDto;
 import ru.golovkov.myrestapp.model.dto.request.MessageRequestDto;
 import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.MessageScrollResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.MessageSinceResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.MessageSyncResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.SliceResponseDto;
 import ru.golovkov.myrestapp.model.entity.Message;
 import ru.golovkov.myrestapp.model.entity.Person;
+import ru.golovkov.myrestapp.realtime.MessageStreamHub;
 import ru.golovkov.myrestapp.security.JwtUtil;
 import ru.golovkov.myrestapp.security.PersonDetails;
 import ru.golovkov.myrestapp.service.MessageService;
 import ru.golovkov.myrestapp.service.PersonDetailsService;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(MessageController.class)
@@ -54,6 +73,8 @@ class MessageControllerTest {
     private PersonDetailsService personDetailsService;
     @MockBean
     private JwtUtil jwtUtil;
+    @MockBean
+    private MessageStreamHub messageStreamHub;
     @InjectMocks
     private MessageController messageController;
     @Autowired
@@ -155,7 +176,7 @@ class MessageControllerTest {
     @Test
     @WithMockUser
     void postMessage() throws Exception {
-        when(messageService.create(any(MessageRequestDto.class))).thenReturn(messageResponseDto1);
+        when(messageService.submit(any(MessageRequestDto.class), eq(true))).thenReturn(new MessageSubmission(messageResponseDto1, true));
 
         mockMvc.perform(post("/api/messages/{receiverId}", receiver.getId())
                         .contentType(MediaType.APPLICATION_JSON)
@@ -165,21 +186,151 @@ class MessageControllerTest {
                 .andExpect(content().json(objectMapper.writeValueAsString(messageResponseDto1)));
     }
 
+    @Test
+    @WithMockUser
+    void postMessage_NotDurableButWrittenAtOnce() throws Exception {
+        when(messageService.submit(any(MessageRequestDto.class), eq(false))).thenReturn(new MessageSubmission(messageResponseDto1, true));
+
+        mockMvc.perform(post("/api/messages/{receiverId}", receiver.getId())
+                        .param("durable", "false")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(content1)
+                )
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    @WithMockUser
+    void postMessage_NotDurable() throws Exception {
+        when(messageService.submit(any(MessageRequestDto.class), eq(false))).thenReturn(new MessageSubmission(messageResponseDto1, false));
+
+        mockMvc.perform(post("/api/messages/{receiverId}", receiver.getId())
+                        .param("durable", "false")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(content1)
+                )
+                .andExpect(status().isAccepted())
+                .andExpect(content().json(objectMapper.writeValueAsString(messageResponseDto1)));
+    }
+
+    @Test
+    @WithMockUser
+    void postMessages() throws Exception {
+        when(messageService.createAll(anyList())).thenReturn(messageResponseDtoList);
+
+        mockMvc.perform(post("/api/messages/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(
+                                new MessageBulkItemRequestDto(receiver.getId(), content1)
+                        )))
+                )
+                .andExpect(status().isCreated())
+                .andExpect(content().json(objectMapper.writeValueAsString(messageResponseDtoList)));
+    }
+
+    @Test
+    @WithMockUser
+    void getMessageStream() throws Exception {
+        when(messageStreamHub.subscribe(anyLong())).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/messages/stream"))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    @WithMockUser
+    void getMessageListWithSenderSince() throws Exception {
+        MessageSinceResponseDto messageSinceResponseDto = new MessageSinceResponseDto(messageResponseDtoList, "next");
+        when(messageService.getListWithSenderSince(anyLong(), anyLong(), eq("cursor"), eq(Duration.ofSeconds(10))))
+                .thenReturn(CompletableFuture.completedFuture(messageSinceResponseDto));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/messages/with/{senderId}/since", sender.getId())
+                        .param("cursor", "cursor")
+                        .param("wait", "10s"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(messageSinceResponseDto)));
+    }
+
+    @Test
+    @WithMockUser
+    void getMessageChangesWithSenderByIds() throws Exception {
+        MessageSyncResponseDto messageSyncResponseDto =
+                new MessageSyncResponseDto(messageResponseDtoList, List.of(3L), "token", false, false);
+        when(messageService.getChangesWithSenderByIds(anyLong(), anyLong(), eq("previous"), eq(500)))
+                .thenReturn(messageSyncResponseDto);
+
+        mockMvc.perform(get("/api/messages/with/{senderId}/sync", sender.getId())
+                        .param("token", "previous"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(messageSyncResponseDto)));
+    }
+
     @Test
     @WithMockUser
     void getMessageListWithSenderByIds() throws Exception {
         when(messageService.getListWithSenderByIds(anyLong(),
                 anyLong(),
+                eq(true),
                 any(Pageable.class))
-        ).thenReturn(messageResponseDtoList);
+        ).thenReturn(new SliceResponseDto<>(messageResponseDtoList, false, 2L));
 
         mockMvc.perform(get("/api/messages/with/{senderId}", sender.getId())
+                        .param("withTotal", "true")
                         .param("page", "0")
                         .param("size", "10")
                         .param("sort", "sentAt,desc")
                 )
                 .andExpect(status().isOk())
-                .andExpect(content().json(objectMapper.writeValueAsString(messageResponseDtoList)));
+                .andExpect(content().json(objectMapper.writeValueAsString(
+                        new SliceResponseDto<>(messageResponseDtoList.reversed(), false, 2L))));
+    }
+
+    @Test
+    @WithMockUser
+    void exportMessagesWithSenderByIds() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<MessageResponseDto> consumer = invocation.getArgument(2);
+            messageResponseDtoList.forEach(consumer);
+            return null;
+        }).when(messageService).exportWithSenderByIds(anyLong(), anyLong(), any());
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/messages/with/{senderId}/export", receiver.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().string("Content-Disposition",
+                        STR."attachment; filename=\"messages-with-\{receiver.getId()}.ndjson\""))
+                .andExpect(content().string(STR."""
+                        \{objectMapper.writeValueAsString(messageResponseDtoList.get(0))}
+                        \{objectMapper.writeValueAsString(messageResponseDtoList.get(1))}
+                        """));
+    }
+
+    @Test
+    @WithMockUser
+    void getMessageScrollWithSenderByIds() throws Exception {
+        MessageScrollResponseDto messageScrollResponseDto =
+                new MessageScrollResponseDto(messageResponseDtoList, "cursor", true);
+        when(messageService.getScrollWithSenderByIds(anyLong(),
+                anyLong(),
+                isNull(),
+                isNull(),
+                anyInt())
+        ).thenReturn(messageScrollResponseDto);
+
+        mockMvc.perform(get("/api/messages/with/{senderId}/scroll", sender.getId())
+                        .param("size", "2")
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(messageScrollResponseDto)));
     }
 
     @Test
@@ -198,7 +349,7 @@ class MessageControllerTest {
     @Test
     @WithMockUser
     void deleteMessageById() throws Exception {
-        when(messageService.getById(anyLong())).thenReturn(messageResponseDto1);
+        when(messageService.deleteById(id1, id1)).thenReturn(messageResponseDto1);
 
         mockMvc.perform(delete("/api/messages/{id}", id1))
                 .andExpect(status().isOk())
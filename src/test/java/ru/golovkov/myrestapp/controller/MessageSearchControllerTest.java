@@ -16,7 +16,9 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.golovkov.myrestapp.model.dto.request.MessageRequestDto;
+import ru.golovkov.myrestapp.model.dto.request.MessageSearchMode;
 import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.SliceResponseDto;
 import ru.golovkov.myrestapp.model.entity.Message;
 import ru.golovkov.myrestapp.model.entity.Person;
 import ru.golovkov.myrestapp.security.JwtUtil;
@@ -44,6 +46,7 @@ class MessageSearchControllerTest {
     private static Person sender;
     private static MessageResponseDto messageResponseDto1;
     private static List<MessageResponseDto> messageResponseDtoList;
+    private static SliceResponseDto<MessageResponseDto> messageResponseDtoSlice;
     @Autowired
     private MockMvc mockMvc;
     @MockBean
@@ -107,6 +110,7 @@ class MessageSearchControllerTest {
         messageResponseDto2.setSentAt(message2.getSentAt());
 
         messageResponseDtoList = List.of(messageResponseDto1, messageResponseDto2);
+        messageResponseDtoSlice = new SliceResponseDto<>(messageResponseDtoList, true, null);
 
         PersonDetails personDetails = new PersonDetails(sender);
 
@@ -163,7 +167,7 @@ class MessageSearchControllerTest {
     @Test
     @WithMockUser
     void getMessageListFromSenderById() throws Exception {
-        when(messageService.getListFromSenderById(anyLong(), anyLong(), any(Pageable.class))).thenReturn(messageResponseDtoList);
+        when(messageService.getListFromSenderById(anyLong(), anyLong(), eq(false), any(Pageable.class))).thenReturn(messageResponseDtoSlice);
 
         mockMvc.perform(get("/api/messages/from/{senderId}", sender.getId())
                         .param("page", "0")
@@ -171,13 +175,13 @@ class MessageSearchControllerTest {
                         .param("sort", "sentAt,desc")
                 )
                 .andExpect(status().isOk())
-                .andExpect(content().json(objectMapper.writeValueAsString(messageResponseDtoList)));
+                .andExpect(content().json(objectMapper.writeValueAsString(messageResponseDtoSlice)));
     }
 
     @Test
     @WithMockUser
     void getMessageListFromSenderByIdAndContent() throws Exception {
-        when(messageService.getListFromSenderByIdAndContent(anyLong(), anyLong(), anyString(), any(Pageable.class))).thenReturn(messageResponseDtoList);
+        when(messageService.getListFromSenderByIdAndContent(anyLong(), anyLong(), anyString(), any(MessageSearchMode.class), any(Pageable.class))).thenReturn(messageResponseDtoSlice);
 
         mockMvc.perform(get("/api/messages/search-from/{senderId}", sender.getId())
                         .param("content", content1)
@@ -186,13 +190,13 @@ class MessageSearchControllerTest {
                         .param("sort", "sentAt,desc")
                 )
                 .andExpect(status().isOk())
-                .andExpect(content().json(objectMapper.writeValueAsString(messageResponseDtoList)));
+                .andExpect(content().json(objectMapper.writeValueAsString(messageResponseDtoSlice)));
     }
 
     @Test
     @WithMockUser
     void getMessageListWithSenderByIdsAndContent() throws Exception {
-        when(messageService.getListWithSenderByIdsAndContent(anyLong(), anyLong(), anyString(), any(Pageable.class))).thenReturn(messageResponseDtoList);
+        when(messageService.getListWithSenderByIdsAndContent(anyLong(), anyLong(), anyString(), any(MessageSearchMode.class), any(Pageable.class))).thenReturn(messageResponseDtoSlice);
 
         mockMvc.perform(get("/api/messages/search-with/{senderId}", sender.getId())
                         .param("content", content1)
@@ -201,6 +205,6 @@ class MessageSearchControllerTest {
                         .param("sort", "sentAt,desc")
                 )
                 .andExpect(status().isOk())
-                .andExpect(content().json(objectMapper.writeValueAsString(messageResponseDtoList)));
+                .andExpect(content().json(objectMapper.writeValueAsString(messageResponseDtoSlice)));
     }
 }
\ No newline at end of file
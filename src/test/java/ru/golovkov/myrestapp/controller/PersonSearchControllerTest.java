@@ -13,6 +13,8 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.golovkov.myrestapp.model.dto.response.PersonResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.PersonSuggestionDto;
+import ru.golovkov.myrestapp.model.dto.response.SliceResponseDto;
 import ru.golovkov.myrestapp.model.entity.Person;
 import ru.golovkov.myrestapp.security.JwtUtil;
 import ru.golovkov.myrestapp.service.PersonDetailsService;
@@ -67,16 +69,33 @@ class PersonSearchControllerTest {
     @Test
     @WithMockUser
     void getPersonList() {
-        when(personService.getAllByNameContaining(anyString(), any(Pageable.class))).thenReturn(personResponseDtoList);
+        SliceResponseDto<PersonResponseDto> personResponseDtoSlice = new SliceResponseDto<>(personResponseDtoList, false, 1L);
+        when(personService.getAllByNameContaining(anyString(), eq(true), any(Pageable.class))).thenReturn(personResponseDtoSlice);
         mockMvc.perform(get("/api/people")
                         .param("nameToSearch", "name")
+                        .param("withTotal", "true")
                         .param("page", "0")
                         .param("size", "10")
                         .param("sort", "name,asc")
                         .contentType(MediaType.APPLICATION_JSON)
                 )
                 .andExpect(status().isOk())
-                .andExpect(content().json(objectMapper.writeValueAsString(personResponseDtoList)));
+                .andExpect(content().json(objectMapper.writeValueAsString(personResponseDtoSlice)));
+    }
+
+    @SneakyThrows
+    @Test
+    @WithMockUser
+    void suggestPersonNames() {
+        List<PersonSuggestionDto> suggestionList = List.of(new PersonSuggestionDto(id, "name"));
+        when(personService.suggestByNamePrefix("na", 5)).thenReturn(suggestionList);
+        mockMvc.perform(get("/api/people/suggest")
+                        .param("prefix", "na")
+                        .param("limit", "5")
+                        .contentType(MediaType.APPLICATION_JSON)
+                )
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(suggestionList)));
     }
 
     @SneakyThrows
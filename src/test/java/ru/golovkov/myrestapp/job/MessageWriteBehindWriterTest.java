@@ -0,0 +1,123 @@
+package ru.golovkov.myrestapp.job;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.golovkov.myrestapp.exception.httpcommon.ServiceUnavailableException;
+import ru.golovkov.myrestapp.model.entity.Message;
+import ru.golovkov.myrestapp.model.entity.Person;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MessageWriteBehindWriterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private JdbcTemplate jdbcTemplate;
+    private MessageWriteBehindWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(50L, 100L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.destroy();
+    }
+
+    @Test
+    void submit_GroupsMessagesIntoOneCommit() {
+        writer = newWriter(10, Duration.ofMillis(500));
+
+        List<CompletableFuture<Message>> written = List.of(
+                writer.submit(newMessage("first")),
+                writer.submit(newMessage("second")),
+                writer.submit(newMessage("third"))
+        );
+
+        assertEquals(List.of(1L, 2L, 3L), written.stream().map(CompletableFuture::join).map(Message::getId).toList());
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), argThat((List<Object[]> batchArgs) -> batchArgs.size() == 3));
+        assertEquals(3, meterRegistry.get("messages.write-behind.group.size").summary().totalAmount());
+    }
+
+    @Test
+    void submit_QueueFull_ThrowsServiceUnavailableException() throws Exception {
+        writer = newWriter(1, Duration.ZERO);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return new int[]{1};
+        });
+
+        CompletableFuture<Message> writing = writer.submit(newMessage("first"));
+        started.await();
+        CompletableFuture<Message> queued = writer.submit(newMessage("second"));
+
+        assertThrows(ServiceUnavailableException.class, () -> writer.submit(newMessage("third")));
+        release.countDown();
+        assertEquals(1L, writing.join().getId());
+        assertEquals(2L, queued.join().getId());
+    }
+
+    @Test
+    void submit_GroupFails_RetriesMessagesOneByOne() {
+        writer = newWriter(10, Duration.ofMillis(500));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> batchArgs = invocation.getArgument(1);
+            if (batchArgs.stream().anyMatch(args -> "bad".equals(args[1]))) {
+                throw new DataIntegrityViolationException("bad receiver");
+            }
+            return new int[batchArgs.size()];
+        });
+
+        CompletableFuture<Message> good = writer.submit(newMessage("good"));
+        CompletableFuture<Message> bad = writer.submit(newMessage("bad"));
+
+        assertEquals("good", good.join().getContent());
+        CompletionException e = assertThrows(CompletionException.class, bad::join);
+        assertInstanceOf(DataIntegrityViolationException.class, e.getCause());
+    }
+
+    private MessageWriteBehindWriter newWriter(int queueCapacity, Duration maxDelay) {
+        return new MessageWriteBehindWriter(
+                jdbcTemplate,
+                mock(PlatformTransactionManager.class),
+                meterRegistry,
+                queueCapacity,
+                10,
+                maxDelay,
+                Duration.ofSeconds(5)
+        );
+    }
+
+    private Message newMessage(String content) {
+        Person sender = new Person();
+        sender.setId(1L);
+        Person receiver = new Person();
+        receiver.setId(2L);
+        Message message = new Message();
+        message.setContent(content);
+        message.setSender(sender);
+        message.setReceiver(receiver);
+        message.setSentAt(LocalDateTime.now());
+        message.setConversationKey(Message.conversationKeyOf(1L, 2L));
+        return message;
+    }
+}
@@ -0,0 +1,48 @@
+package ru.golovkov.myrestapp.realtime;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageLongPollRegistryTest {
+
+    private MessageLongPollRegistry messageLongPollRegistry;
+
+    @BeforeEach
+    void setUp() {
+        messageLongPollRegistry = new MessageLongPollRegistry(new SimpleMeterRegistry(), Runnable::run);
+    }
+
+    @Test
+    void onMessageEvent_ChangeOfConversation_CompletesWaiter() {
+        CompletableFuture<Boolean> waiting = messageLongPollRegistry.await("1:2", Duration.ofMinutes(1));
+
+        messageLongPollRegistry.onMessageEvent(new MessageEvent(MessageEventType.CREATED, newMessage(7L), 3L));
+        messageLongPollRegistry.onMessageEvent(new MessageEvent(MessageEventType.DELETED, newMessage(5L), 2L));
+        assertFalse(waiting.isDone());
+
+        messageLongPollRegistry.onMessageEvent(new MessageEvent(MessageEventType.UPDATED, newMessage(5L), 2L));
+
+        assertTrue(waiting.join());
+        assertEquals(0, messageLongPollRegistry.getWaiterCount());
+    }
+
+    @Test
+    void await_Timeout_CompletesWithoutChange() {
+        CompletableFuture<Boolean> waiting = messageLongPollRegistry.await("1:2", Duration.ofMillis(50));
+
+        assertFalse(waiting.join());
+        assertEquals(0, messageLongPollRegistry.getWaiterCount());
+    }
+
+    private MessageResponseDto newMessage(Long id) {
+        return new MessageResponseDto(id, "hello", 1L, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,133 @@
+package ru.golovkov.myrestapp.realtime;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MessageStreamHubTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ExecutorService drainExecutor;
+    private MessageStreamHub messageStreamHub;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        drainExecutor = mock(ExecutorService.class);
+        messageStreamHub = new MessageStreamHub(meterRegistry, Duration.ofMinutes(1), 1, Duration.ofMinutes(1),
+                mock(ScheduledExecutorService.class), drainExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        messageStreamHub.destroy();
+    }
+
+    @Test
+    void onMessageEvent_DeliversToSenderAndReceiverOnly() {
+        messageStreamHub.subscribe(1L);
+        messageStreamHub.subscribe(2L);
+        messageStreamHub.subscribe(3L);
+
+        messageStreamHub.onMessageEvent(newEvent(1L, 2L));
+
+        verify(drainExecutor, times(2)).execute(any(Runnable.class));
+        assertEquals(3, messageStreamHub.getSubscriptionCount());
+        assertEquals(3, meterRegistry.get("messages.stream.subscriptions").gauge().value());
+    }
+
+    @Test
+    void onMessageEvent_SlowSubscriber_IsDropped() {
+        messageStreamHub.subscribe(1L);
+        messageStreamHub.subscribe(2L);
+
+        messageStreamHub.onMessageEvent(newEvent(1L, 2L));
+        messageStreamHub.onMessageEvent(newEvent(1L, 1L));
+
+        assertEquals(1, messageStreamHub.getSubscriptionCount());
+        assertEquals(1, meterRegistry.get("messages.stream.dropped").counter().count());
+    }
+
+    @Test
+    void onMessageEvent_BlockedSubscribers_DoNotStallHealthyOne() throws InterruptedException {
+        CountDownLatch unblock = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(10);
+        Deque<SseEmitter> emitters = new ArrayDeque<>(List.of(
+                new BlockingEmitter(unblock), new BlockingEmitter(unblock), new CountingEmitter(delivered)));
+        MessageStreamHub hub = new MessageStreamHub(new SimpleMeterRegistry(), Duration.ofMinutes(1), 64,
+                Duration.ofMinutes(1), mock(ScheduledExecutorService.class), Executors.newVirtualThreadPerTaskExecutor()) {
+            @Override
+            SseEmitter createEmitter(Duration timeout) {
+                return emitters.poll();
+            }
+        };
+        try {
+            hub.subscribe(1L);
+            hub.subscribe(1L);
+            hub.subscribe(2L);
+
+            for (int i = 0; i < 10; i++) {
+                hub.onMessageEvent(newEvent(1L, 2L));
+            }
+
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            assertEquals(3, hub.getSubscriptionCount());
+        } finally {
+            unblock.countDown();
+            hub.destroy();
+        }
+    }
+
+    private MessageEvent newEvent(Long senderId, Long receiverId) {
+        MessageResponseDto messageResponseDto = new MessageResponseDto(1L, "hello", senderId, LocalDateTime.now());
+        return new MessageEvent(MessageEventType.CREATED, messageResponseDto, receiverId);
+    }
+
+    private static class BlockingEmitter extends SseEmitter {
+
+        private final CountDownLatch unblock;
+
+        private BlockingEmitter(CountDownLatch unblock) {
+            this.unblock = unblock;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class CountingEmitter extends SseEmitter {
+
+        private final CountDownLatch delivered;
+
+        private CountingEmitter(CountDownLatch delivered) {
+            this.delivered = delivered;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            delivered.countDown();
+        }
+    }
+}
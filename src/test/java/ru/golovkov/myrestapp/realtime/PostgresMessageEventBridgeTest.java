@@ -0,0 +1,149 @@
+package ru.golovkov.myrestapp.realtime;
+
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mockingDetails;
+
+@SpringBootTest(properties = "app.messages.notify.enabled=true")
+class PostgresMessageEventBridgeTest {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+    @MockBean
+    private MessageStreamHub messageStreamHub;
+
+    @Test
+    void onMessageEvent_SendsOneNotificationPerTransaction() throws Exception {
+        try (Connection connection = openConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN message_events");
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                eventPublisher.publishEvent(newEvent(1L, "first"));
+                eventPublisher.publishEvent(newEvent(2L, "second"));
+            });
+
+            List<PGNotification> notifications = awaitNotifications(connection);
+            assertEquals(1, notifications.size());
+            assertTrue(notifications.getFirst().getParameter().contains("first"));
+            assertTrue(notifications.getFirst().getParameter().contains("second"));
+        }
+    }
+
+    @Test
+    void onMessageEvent_LargeMultibyteContent_SplitsNotificationsUnderPayloadLimit() throws Exception {
+        String content = "界".repeat(254) + "\u0001";
+        try (Connection connection = openConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN message_events");
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                for (long id = 1; id <= 10; id++) {
+                    eventPublisher.publishEvent(newEvent(id, content));
+                }
+            });
+
+            List<PGNotification> notifications = awaitNotifications(connection);
+            assertTrue(notifications.size() > 1);
+            int events = 0;
+            for (PGNotification notification : notifications) {
+                assertTrue(notification.getParameter().getBytes(StandardCharsets.UTF_8).length < 8000);
+                events += notification.getParameter().split("\"CREATED\"", -1).length - 1;
+            }
+            assertEquals(10, events);
+        }
+    }
+
+    @Test
+    void onMessageEvent_RolledBack_SendsNothing() throws Exception {
+        try (Connection connection = openConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN message_events");
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                eventPublisher.publishEvent(newEvent(1L, "rolled back"));
+                status.setRollbackOnly();
+            });
+
+            assertEquals(0, connection.unwrap(PGConnection.class).getNotifications(500).length);
+        }
+    }
+
+    @Test
+    void notificationFromAnotherNode_IsPublishedAsRemoteEvent() throws InterruptedException {
+        String payload = """
+                {"node":"other-node","events":[{"type":"CREATED","id":7,"content":"from afar",\
+                "senderId":1,"receiverId":2,"sentAt":"2024-06-01T12:00:00"}]}""";
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (remoteEventsReceivedByHub().isEmpty() && System.currentTimeMillis() < deadline) {
+            jdbcTemplate.queryForObject("SELECT pg_notify('message_events', ?)", Object.class, payload);
+            Thread.sleep(200);
+        }
+
+        MessageEvent event = remoteEventsReceivedByHub().getFirst();
+        assertEquals(MessageEventType.CREATED, event.type());
+        assertEquals(7L, event.message().getId());
+        assertEquals("from afar", event.message().getContent());
+        assertEquals(2L, event.receiverId());
+    }
+
+    private List<MessageEvent> remoteEventsReceivedByHub() {
+        return mockingDetails(messageStreamHub).getInvocations().stream()
+                .flatMap(invocation -> Arrays.stream(invocation.getArguments()))
+                .filter(argument -> argument instanceof MessageEvent event && event.remote())
+                .map(MessageEvent.class::cast)
+                .toList();
+    }
+
+    private Connection openConnection() throws Exception {
+        return DriverManager.getConnection(
+                dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword()
+        );
+    }
+
+    private List<PGNotification> awaitNotifications(Connection connection) throws Exception {
+        List<PGNotification> notifications = new ArrayList<>();
+        PGNotification[] received = connection.unwrap(PGConnection.class).getNotifications(5_000);
+        while (received.length > 0) {
+            notifications.addAll(List.of(received));
+            received = connection.unwrap(PGConnection.class).getNotifications(200);
+        }
+        return notifications;
+    }
+
+    private MessageEvent newEvent(Long id, String content) {
+        return new MessageEvent(MessageEventType.CREATED, new MessageResponseDto(id, content, 1L, LocalDateTime.now()), 2L);
+    }
+}
@@ -0,0 +1,343 @@
+package ru.golovkov.myrestapp.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
+import ru.golovkov.myrestapp.model.entity.Message;
+import ru.golovkov.myrestapp.model.entity.Person;
+import ru.golovkov.myrestapp.model.entity.UserRole;
+import ru.golovkov.myrestapp.model.projection.MessageChangeView;
+import ru.golovkov.myrestapp.model.projection.MessageMutationView;
+import ru.golovkov.myrestapp.model.projection.MessageView;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class MessageRepositoryTest {
+
+    private static PageRequest pageRequest;
+    private String conversationKey;
+    private Person first;
+    private Person second;
+    private List<Message> messageList;
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private TestEntityManager testEntityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        pageRequest = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "sentAt"));
+        first = persistPerson();
+        second = persistPerson();
+        conversationKey = Message.conversationKeyOf(first.getId(), second.getId());
+        LocalDateTime now = LocalDateTime.of(2024, 6, 1, 12, 0);
+        messageList = List.of(
+                persistMessage(first, second, "hello", now),
+                persistMessage(second, first, "Hello back", now.plusMinutes(1)),
+                persistMessage(first, second, "bye", now.plusMinutes(2))
+        );
+        testEntityManager.flush();
+        testEntityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAllByConversationKey() {
+        List<MessageResponseDto> page = messageRepository
+                .findAllByConversationKey(conversationKey, pageRequest)
+                .getContent();
+
+        assertEquals(3, page.size());
+        assertEquals(second.getId(), page.get(1).getSenderId());
+        assertSingleStatementWithoutEntityLoads();
+    }
+
+    @Test
+    void findAllByConversationKey_SliceWithoutCount() {
+        Slice<MessageResponseDto> slice = messageRepository
+                .findAllByConversationKey(conversationKey, PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "sentAt")));
+
+        assertEquals(2, slice.getNumberOfElements());
+        assertTrue(slice.hasNext());
+        assertSingleStatementWithoutEntityLoads();
+    }
+
+    @Test
+    void findAllByReceiver_IdAndSender_Id() {
+        List<MessageResponseDto> page = messageRepository
+                .findAllByReceiver_IdAndSender_Id(second.getId(), first.getId(), pageRequest)
+                .getContent();
+
+        assertEquals(2, page.size());
+        assertSingleStatementWithoutEntityLoads();
+    }
+
+    @Test
+    void findLatestByConversationKey() {
+        List<MessageResponseDto> page = messageRepository.findLatestByConversationKey(conversationKey, 2);
+
+        assertEquals(List.of(messageList.get(1).getId(), messageList.get(2).getId()),
+                page.stream().map(MessageResponseDto::getId).toList());
+        assertSingleStatementWithoutEntityLoads();
+    }
+
+    @Test
+    void findByConversationKeyBefore() {
+        Message cursor = messageList.get(2);
+        List<MessageResponseDto> page = messageRepository
+                .findByConversationKeyBefore(conversationKey, cursor.getSentAt(), cursor.getId(), 10);
+
+        assertEquals(List.of(messageList.get(0).getId(), messageList.get(1).getId()),
+                page.stream().map(MessageResponseDto::getId).toList());
+        assertSingleStatementWithoutEntityLoads();
+    }
+
+    @Test
+    void findByConversationKeyAfter() {
+        Message cursor = messageList.get(0);
+        List<MessageResponseDto> page = messageRepository
+                .findByConversationKeyAfter(conversationKey, cursor.getSentAt(), cursor.getId(), 1);
+
+        assertEquals(List.of(messageList.get(1).getId()),
+                page.stream().map(MessageResponseDto::getId).toList());
+        assertSingleStatementWithoutEntityLoads();
+    }
+
+    @Test
+    void streamByConversationKey() {
+        try (Stream<MessageResponseDto> messageStream = messageRepository.streamByConversationKey(conversationKey)) {
+            assertEquals(messageList.stream().map(Message::getId).toList(),
+                    messageStream.map(MessageResponseDto::getId).toList());
+        }
+        assertSingleStatementWithoutEntityLoads();
+    }
+
+    @Test
+    void findChangesByConversationKey_SmallerIdCommittedLater_IsAfterCursor() {
+        long cursor = messageRepository.findLastChangeSeqByConversationKey(conversationKey);
+        // Another node hands out ids from an earlier block, so this message has the smallest id but commits last.
+        testEntityManager.getEntityManager()
+                .createNativeQuery("INSERT INTO messages (id, content, sender_id, receiver_id, sent_at, conversation_key) " +
+                        "VALUES (-1, 'late', :senderId, :receiverId, now(), :conversationKey)")
+                .setParameter("senderId", second.getId())
+                .setParameter("receiverId", first.getId())
+                .setParameter("conversationKey", conversationKey)
+                .executeUpdate();
+
+        List<MessageChangeView> changes = messageRepository.findChangesByConversationKey(conversationKey, cursor, false, 10);
+
+        assertEquals(List.of(-1L), changes.stream().map(MessageChangeView::getId).toList());
+        assertEquals(changes.getLast().getChangeSeq(), messageRepository.findLastChangeSeqByConversationKey(conversationKey));
+    }
+
+    @Test
+    void findChangesByConversationKey() {
+        List<MessageChangeView> initial = messageRepository.findChangesByConversationKey(conversationKey, 0, true, 10);
+        long syncedChangeSeq = initial.getLast().getChangeSeq();
+        Message edited = testEntityManager.find(Message.class, messageList.get(0).getId());
+        edited.setContent("hello again");
+        messageRepository.delete(testEntityManager.find(Message.class, messageList.get(1).getId()));
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        List<MessageChangeView> changes = messageRepository.findChangesByConversationKey(conversationKey, syncedChangeSeq, true, 10);
+
+        assertEquals(List.of(messageList.get(0).getId(), messageList.get(1).getId()),
+                changes.stream().map(MessageChangeView::getId).toList());
+        assertEquals("hello again", changes.get(0).getContent());
+        assertTrue(changes.get(1).isDeleted());
+        assertTrue(changes.get(0).getChangeSeq() < changes.get(1).getChangeSeq());
+        assertEquals(2, messageRepository.findChangesByConversationKey(conversationKey, 0, false, 10).size());
+        assertTrue(messageRepository.findById(messageList.get(1).getId()).isEmpty());
+    }
+
+    @Test
+    void updateContentByIdAndSenderId() {
+        Long messageId = messageList.get(0).getId();
+
+        MessageMutationView updated = messageRepository
+                .updateContentByIdAndSenderId(messageId, first.getId(), "edited")
+                .orElseThrow();
+
+        assertEquals("edited", updated.getContent());
+        assertEquals(second.getId(), updated.getReceiverId());
+        assertTrue(messageRepository.updateContentByIdAndSenderId(messageId, second.getId(), "stolen").isEmpty());
+        assertEquals("edited", messageRepository.findById(messageId).orElseThrow().getContent());
+    }
+
+    @Test
+    void deleteByIdAndSenderId() {
+        Long messageId = messageList.get(1).getId();
+
+        assertTrue(messageRepository.deleteByIdAndSenderId(messageId, first.getId()).isEmpty());
+        MessageMutationView deleted = messageRepository.deleteByIdAndSenderId(messageId, second.getId()).orElseThrow();
+
+        assertEquals("Hello back", deleted.getContent());
+        assertEquals(first.getId(), deleted.getReceiverId());
+        assertTrue(messageRepository.deleteByIdAndSenderId(messageId, second.getId()).isEmpty());
+        assertTrue(messageRepository.findSenderIdById(messageId).isEmpty());
+        assertEquals(Optional.of(first.getId()), messageRepository.findSenderIdById(messageList.get(0).getId()));
+    }
+
+    @Test
+    void purgeTombstones() {
+        messageRepository.delete(testEntityManager.find(Message.class, messageList.get(2).getId()));
+        testEntityManager.flush();
+
+        int purged = messageRepository.purgeTombstones(LocalDateTime.now().plusMinutes(1), Integer.MAX_VALUE);
+
+        assertTrue(purged >= 1);
+        assertTrue(messageRepository.findChangesByConversationKey(conversationKey, 0, true, 10).stream()
+                .noneMatch(MessageChangeView::isDeleted));
+    }
+
+    @Test
+    void softDeleteByPersonId() {
+        long syncedChangeSeq = messageRepository.findLastChangeSeqByConversationKey(conversationKey);
+
+        List<MessageMutationView> deleted = messageRepository.softDeleteByPersonId(second.getId(), Integer.MAX_VALUE);
+
+        assertEquals(3, deleted.size());
+        assertTrue(deleted.stream().map(MessageMutationView::getContent).toList().contains("Hello back"));
+        assertTrue(messageRepository.softDeleteByPersonId(second.getId(), Integer.MAX_VALUE).isEmpty());
+        List<MessageChangeView> changes = messageRepository.findChangesByConversationKey(conversationKey, syncedChangeSeq, true, 10);
+        assertEquals(3, changes.size());
+        assertTrue(changes.stream().allMatch(MessageChangeView::isDeleted));
+        assertTrue(messageRepository.existsByPersonIdIncludingDeleted(second.getId()));
+    }
+
+    @Test
+    void searchByConversationKeyAndSubstring() {
+        List<MessageView> page = messageRepository
+                .searchByConversationKeyAndSubstring(conversationKey, "ELLO", "ELLO", PageRequest.of(0, 10))
+                .getContent();
+
+        assertEquals(List.of(messageList.get(1).getId(), messageList.get(0).getId()),
+                page.stream().map(MessageView::getId).toList());
+    }
+
+    @Test
+    void searchByConversationKeyAndSubstring_EscapedPattern() {
+        List<MessageView> page = messageRepository
+                .searchByConversationKeyAndSubstring(conversationKey, "_", "\\_", PageRequest.of(0, 10))
+                .getContent();
+
+        assertTrue(page.isEmpty());
+    }
+
+    @Test
+    void searchByConversationKeyAndWords() {
+        List<MessageView> page = messageRepository
+                .searchByConversationKeyAndWords(conversationKey, "HELLO", PageRequest.of(0, 10))
+                .getContent();
+
+        assertEquals(2, page.size());
+    }
+
+    @Test
+    void searchByReceiverIdAndSenderIdAndSubstring() {
+        List<MessageView> page = messageRepository
+                .searchByReceiverIdAndSenderIdAndSubstring(first.getId(), second.getId(), "HELLO", "HELLO", PageRequest.of(0, 10))
+                .getContent();
+
+        assertEquals(1, page.size());
+        assertEquals(second.getId(), page.getFirst().getSenderId());
+    }
+
+    @Test
+    void searchByReceiverIdAndSenderIdAndWords() {
+        List<MessageView> page = messageRepository
+                .searchByReceiverIdAndSenderIdAndWords(second.getId(), first.getId(), "bye", PageRequest.of(0, 10))
+                .getContent();
+
+        assertEquals(1, page.size());
+        assertEquals(messageList.get(2).getId(), page.getFirst().getId());
+    }
+
+    @Test
+    void backfillConversationKeys() {
+        Message message = persistMessage(second, first, "no key", LocalDateTime.now());
+        message.setConversationKey(null);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        int updated = messageRepository.backfillConversationKeys(Integer.MAX_VALUE);
+
+        assertTrue(updated >= 1);
+        assertEquals(conversationKey, testEntityManager.find(Message.class, message.getId()).getConversationKey());
+    }
+
+    @Test
+    void saveAll_BatchesInserts() {
+        List<Message> bulk = IntStream.range(0, 120)
+                .mapToObj(i -> {
+                    Message message = new Message();
+                    message.setSender(testEntityManager.getEntityManager().getReference(Person.class, first.getId()));
+                    message.setReceiver(testEntityManager.getEntityManager().getReference(Person.class, second.getId()));
+                    message.setContent(STR."bulk \{i}");
+                    message.setSentAt(LocalDateTime.now());
+                    message.setConversationKey(conversationKey);
+                    return message;
+                })
+                .toList();
+
+        messageRepository.saveAll(bulk);
+        testEntityManager.flush();
+
+        assertEquals(120, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 8);
+    }
+
+    private void assertSingleStatementWithoutEntityLoads() {
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getEntityFetchCount());
+    }
+
+    private Person persistPerson() {
+        String name = UUID.randomUUID().toString();
+        Person person = new Person();
+        person.setName(name);
+        person.setEmail(STR."\{name}@mail.com");
+        person.setAge(52);
+        person.setPassword("password");
+        person.setRole(UserRole.ROLE_BASE);
+        person.setRegistrationDate(LocalDate.now());
+        return testEntityManager.persist(person);
+    }
+
+    private Message persistMessage(Person sender, Person receiver, String content, LocalDateTime sentAt) {
+        Message message = new Message();
+        message.setSender(sender);
+        message.setReceiver(receiver);
+        message.setContent(content);
+        message.setSentAt(sentAt);
+        message.setConversationKey(Message.conversationKeyOf(sender.getId(), receiver.getId()));
+        return testEntityManager.persist(message);
+    }
+}
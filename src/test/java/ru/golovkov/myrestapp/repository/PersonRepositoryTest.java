@@ -0,0 +1,105 @@
+package ru.golovkov.myrestapp.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import ru.golovkov.myrestapp.model.entity.Message;
+import ru.golovkov.myrestapp.model.entity.Person;
+import ru.golovkov.myrestapp.model.entity.UserRole;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PersonRepositoryTest {
+
+    private Person first;
+    private Person second;
+    @Autowired
+    private PersonRepository personRepository;
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @BeforeEach
+    void setUp() {
+        first = persistPerson();
+        second = persistPerson();
+        persistMessage(first, second);
+        persistMessage(second, first);
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    void softDeleteById() {
+        assertEquals(first.getName(), personRepository.softDeleteById(first.getId()).orElseThrow());
+
+        assertTrue(personRepository.softDeleteById(first.getId()).isEmpty());
+        assertTrue(personRepository.findById(first.getId()).isEmpty());
+        assertTrue(personRepository.findByName(first.getName()).isEmpty());
+        assertTrue(personRepository.findSoftDeletedIds(0, Integer.MAX_VALUE).contains(first.getId()));
+    }
+
+    @Test
+    void softDeleteByName() {
+        assertEquals(second.getId(), personRepository.softDeleteByName(second.getName()).orElseThrow());
+
+        assertTrue(personRepository.softDeleteByName(second.getName()).isEmpty());
+        assertTrue(personRepository.findById(second.getId()).isEmpty());
+    }
+
+    @Test
+    void purgeSoftDeletedById() {
+        personRepository.softDeleteById(first.getId());
+        assertThrows(DataIntegrityViolationException.class,
+                () -> personRepository.purgeSoftDeletedById(first.getId()));
+    }
+
+    @Test
+    void purgeSoftDeletedById_AfterTombstonesCompacted() {
+        personRepository.softDeleteById(first.getId());
+
+        assertEquals(1, messageRepository.softDeleteByPersonId(first.getId(), 1).size());
+        assertEquals(1, messageRepository.softDeleteByPersonId(first.getId(), 1).size());
+        assertEquals(0, messageRepository.softDeleteByPersonId(first.getId(), 1).size());
+        assertTrue(messageRepository.existsByPersonIdIncludingDeleted(first.getId()));
+        messageRepository.purgeTombstones(LocalDateTime.now().plusMinutes(1), Integer.MAX_VALUE);
+        assertFalse(messageRepository.existsByPersonIdIncludingDeleted(first.getId()));
+
+        assertEquals(0, personRepository.purgeSoftDeletedById(second.getId()));
+        assertEquals(1, personRepository.purgeSoftDeletedById(first.getId()));
+        assertFalse(personRepository.findSoftDeletedIds(0, Integer.MAX_VALUE).contains(first.getId()));
+    }
+
+    private Person persistPerson() {
+        String name = UUID.randomUUID().toString();
+        Person person = new Person();
+        person.setName(name);
+        person.setEmail(STR."\{name}@mail.com");
+        person.setAge(52);
+        person.setPassword("password");
+        person.setRole(UserRole.ROLE_BASE);
+        person.setRegistrationDate(LocalDate.now());
+        return testEntityManager.persist(person);
+    }
+
+    private void persistMessage(Person sender, Person receiver) {
+        Message message = new Message();
+        message.setSender(sender);
+        message.setReceiver(receiver);
+        message.setContent("hello");
+        message.setSentAt(LocalDateTime.now());
+        message.setConversationKey(Message.conversationKeyOf(sender.getId(), receiver.getId()));
+        testEntityManager.persist(message);
+    }
+}
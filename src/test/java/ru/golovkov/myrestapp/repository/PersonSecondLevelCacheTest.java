@@ -0,0 +1,149 @@
+package ru.golovkov.myrestapp.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.golovkov.myrestapp.config.CacheConfig;
+import ru.golovkov.myrestapp.model.entity.Message;
+import ru.golovkov.myrestapp.model.entity.Person;
+import ru.golovkov.myrestapp.model.entity.UserRole;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Hibernate does not cache entities inserted by a transaction that is still running,
+ * so every call here commits on its own, as it would in the application.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(CacheConfig.class)
+class PersonSecondLevelCacheTest {
+
+    private Person person;
+    private Person receiver;
+    private Person reregistered;
+    private Message message;
+    private Statistics statistics;
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private PersonRepository personRepository;
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        person = personRepository.save(newPerson());
+        receiver = personRepository.save(newPerson());
+        message = new Message();
+        message.setSender(person);
+        message.setReceiver(receiver);
+        message.setContent("hello");
+        message.setSentAt(LocalDateTime.now());
+        message.setConversationKey(Message.conversationKeyOf(person.getId(), receiver.getId()));
+        message = messageRepository.save(message);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        messageRepository.softDeleteByPersonId(person.getId(), 10);
+        messageRepository.purgeTombstones(LocalDateTime.now().plusMinutes(1), 10);
+        for (Person created : new Person[]{person, receiver, reregistered}) {
+            if (created != null) {
+                personRepository.softDeleteById(created.getId());
+                personRepository.purgeSoftDeletedById(created.getId());
+            }
+        }
+    }
+
+    @Test
+    void findById_RepeatedLookups_SkipDatabase() {
+        personRepository.findById(person.getId());
+        statistics.clear();
+
+        personRepository.findById(person.getId());
+        personRepository.findById(person.getId());
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    void findByName_RepeatedLookups_SkipDatabase() {
+        personRepository.findByName(person.getName());
+        statistics.clear();
+
+        assertEquals(person.getId(), personRepository.findByName(person.getName()).orElseThrow().getId());
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getNaturalIdCacheHitCount());
+    }
+
+    @Test
+    void findByName_NameRegisteredAgainAfterDelete_FindsNewPerson() {
+        personRepository.findByName(receiver.getName());
+        personRepository.softDeleteById(receiver.getId());
+        personRepository.evictFromSecondLevelCache(receiver.getId(), receiver.getName());
+        Person newPerson = newPerson();
+        newPerson.setName(receiver.getName());
+        reregistered = personRepository.save(newPerson);
+
+        assertEquals(reregistered.getId(), personRepository.findByName(receiver.getName()).orElseThrow().getId());
+    }
+
+    @Test
+    void messageSender_LoadedFromSecondLevelCache() {
+        personRepository.findById(person.getId());
+        statistics.clear();
+
+        String senderName = transactionTemplate.execute(status ->
+                messageRepository.findById(message.getId()).orElseThrow().getSender().getName());
+
+        assertEquals(person.getName(), senderName);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void nativeMessageStatement_KeepsPeopleRegion() {
+        personRepository.findById(person.getId());
+        messageRepository.purgeTombstones(LocalDateTime.now().minusDays(1), 10);
+        statistics.clear();
+
+        personRepository.findById(person.getId());
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    private Person newPerson() {
+        String name = UUID.randomUUID().toString();
+        Person newPerson = new Person();
+        newPerson.setName(name);
+        newPerson.setEmail(STR."\{name}@mail.com");
+        newPerson.setAge(52);
+        newPerson.setPassword("password");
+        newPerson.setRole(UserRole.ROLE_BASE);
+        newPerson.setRegistrationDate(LocalDate.now());
+        return newPerson;
+    }
+}
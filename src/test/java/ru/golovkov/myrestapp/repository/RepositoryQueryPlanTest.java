@@ -0,0 +1,206 @@
+package ru.golovkov.myrestapp.repository;
+
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import ru.golovkov.myrestapp.model.entity.Message;
+import ru.golovkov.myrestapp.model.entity.Person;
+import ru.golovkov.myrestapp.model.entity.UserRole;
+
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every query method of the repositories, captures the SQL Hibernate sends and checks its generic plan:
+ * with sequential scans disabled, the planner still picks one only when no index can serve the query.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "ru.golovkov.myrestapp.repository.RepositoryQueryPlanTest$RecordingStatementInspector")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class RepositoryQueryPlanTest {
+
+    // Reading every person is a full scan by definition.
+    private static final Set<String> FULL_SCAN_METHODS = Set.of("findAllBy", "count", "findAllNames");
+    // Works on the second-level cache only and sends no SQL.
+    private static final Set<String> CACHE_METHODS = Set.of("evictFromSecondLevelCache");
+
+    private final Map<String, List<String>> statementsByMethod = new LinkedHashMap<>();
+    private Person first;
+    private Person second;
+    private Message message;
+    private String conversationKey;
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private PersonRepository personRepository;
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @BeforeEach
+    void setUp() {
+        first = persistPerson();
+        second = persistPerson();
+        conversationKey = Message.conversationKeyOf(first.getId(), second.getId());
+        message = new Message();
+        message.setSender(first);
+        message.setReceiver(second);
+        message.setContent("hello");
+        message.setSentAt(LocalDateTime.now());
+        message.setConversationKey(conversationKey);
+        testEntityManager.persist(message);
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    void repositoryQueries_UseIndexes() {
+        PageRequest newestFirst = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "sentAt"));
+        LocalDateTime now = LocalDateTime.now();
+
+        record("findAllByReceiver_IdAndSender_Id", () -> messageRepository.findAllByReceiver_IdAndSender_Id(second.getId(), first.getId(), newestFirst));
+        record("countByReceiver_IdAndSender_Id", () -> messageRepository.countByReceiver_IdAndSender_Id(second.getId(), first.getId()));
+        record("findAllByConversationKey", () -> messageRepository.findAllByConversationKey(conversationKey, newestFirst));
+        record("countByConversationKey", () -> messageRepository.countByConversationKey(conversationKey));
+        record("findLatestByConversationKey", () -> messageRepository.findLatestByConversationKey(conversationKey, 10));
+        record("findByConversationKeyBefore", () -> messageRepository.findByConversationKeyBefore(conversationKey, now, 0L, 10));
+        record("findByConversationKeyAfter", () -> messageRepository.findByConversationKeyAfter(conversationKey, now, 0L, 10));
+        record("findLastChangeSeqByConversationKey", () -> messageRepository.findLastChangeSeqByConversationKey(conversationKey));
+        record("findChangesByConversationKey", () -> messageRepository.findChangesByConversationKey(conversationKey, 0, true, 10));
+        record("searchByConversationKeyAndSubstring", () -> messageRepository.searchByConversationKeyAndSubstring(conversationKey, "ell", "ell", PageRequest.of(0, 10)));
+        record("searchByConversationKeyAndWords", () -> messageRepository.searchByConversationKeyAndWords(conversationKey, "hello", PageRequest.of(0, 10)));
+        record("searchByReceiverIdAndSenderIdAndSubstring", () -> messageRepository.searchByReceiverIdAndSenderIdAndSubstring(second.getId(), first.getId(), "ell", "ell", PageRequest.of(0, 10)));
+        record("searchByReceiverIdAndSenderIdAndWords", () -> messageRepository.searchByReceiverIdAndSenderIdAndWords(second.getId(), first.getId(), "hello", PageRequest.of(0, 10)));
+        record("streamByConversationKey", () -> {
+            try (Stream<?> messageStream = messageRepository.streamByConversationKey(conversationKey)) {
+                messageStream.forEach(ignored -> {
+                });
+            }
+        });
+        record("findSenderIdById", () -> messageRepository.findSenderIdById(message.getId()));
+        record("updateContentByIdAndSenderId", () -> messageRepository.updateContentByIdAndSenderId(message.getId(), first.getId(), "edited"));
+        record("deleteByIdAndSenderId", () -> messageRepository.deleteByIdAndSenderId(message.getId(), first.getId()));
+        record("backfillConversationKeys", () -> messageRepository.backfillConversationKeys(10));
+        record("lockConversations", () -> messageRepository.lockConversations(new String[]{conversationKey}));
+        record("purgeTombstones", () -> messageRepository.purgeTombstones(now, 10));
+        record("softDeleteByPersonId", () -> messageRepository.softDeleteByPersonId(first.getId(), 10));
+        record("existsByPersonIdIncludingDeleted", () -> messageRepository.existsByPersonIdIncludingDeleted(first.getId()));
+
+        record("findByName", () -> personRepository.findByName(first.getName()));
+        record("findAllByNameContainingIgnoreCase", () -> personRepository.findAllByNameContainingIgnoreCase(PageRequest.of(0, 10), "abc"));
+        record("countByNameContainingIgnoreCase", () -> personRepository.countByNameContainingIgnoreCase("abc"));
+        record("findSoftDeletedIds", () -> personRepository.findSoftDeletedIds(0, 10));
+        record("softDeleteByName", () -> personRepository.softDeleteByName(second.getName()));
+        record("softDeleteById", () -> personRepository.softDeleteById(first.getId()));
+        record("purgeSoftDeletedById", () -> personRepository.purgeSoftDeletedById(first.getId()));
+
+        Set<String> declaredMethods = Stream.of(MessageRepository.class, PersonRepository.class, PersonNaturalIdRepository.class)
+                .flatMap(repository -> Arrays.stream(repository.getDeclaredMethods()))
+                .map(Method::getName)
+                .filter(name -> !FULL_SCAN_METHODS.contains(name) && !CACHE_METHODS.contains(name))
+                .collect(Collectors.toSet());
+        assertEquals(declaredMethods, statementsByMethod.keySet(), "Every repository query method must be checked");
+
+        List<String> sequentialScans = new ArrayList<>();
+        statementsByMethod.forEach((method, statements) -> {
+            assertTrue(!statements.isEmpty(), STR."\{method} sent no SQL");
+            for (String sql : statements) {
+                String plan = explain(sql);
+                if (plan.contains("Seq Scan")) {
+                    sequentialScans.add(STR."\{method}:\n\{sql}\n\{plan}");
+                }
+            }
+        });
+        assertTrue(sequentialScans.isEmpty(), String.join("\n\n", sequentialScans));
+    }
+
+    private void record(String method, Runnable call) {
+        testEntityManager.flush();
+        testEntityManager.clear();
+        RecordingStatementInspector.STATEMENTS.clear();
+        call.run();
+        testEntityManager.flush();
+        statementsByMethod.put(method, List.copyOf(RecordingStatementInspector.STATEMENTS));
+    }
+
+    private String explain(String sql) {
+        return testEntityManager.getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            StringBuilder plan = new StringBuilder();
+            StringJoiner parameters = new StringJoiner(", ", "(", ")").setEmptyValue("");
+            String positionalSql = toPositionalParameters(sql, parameters);
+            // The JDBC driver binds parameters itself, so the statement is prepared on the server
+            // and explained with a generic plan, which does not depend on the parameter values.
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCAL enable_seqscan = off");
+                statement.execute("SET LOCAL plan_cache_mode = force_generic_plan");
+                statement.execute(STR."PREPARE plan_check AS \{positionalSql}");
+                try (ResultSet resultSet = statement.executeQuery(STR."EXPLAIN EXECUTE plan_check\{parameters}")) {
+                    while (resultSet.next()) {
+                        plan.append(resultSet.getString(1)).append('\n');
+                    }
+                }
+                statement.execute("DEALLOCATE plan_check");
+                statement.execute("RESET plan_cache_mode");
+                statement.execute("RESET enable_seqscan");
+            }
+            return plan.toString();
+        });
+    }
+
+    private String toPositionalParameters(String sql, StringJoiner parameters) {
+        StringBuilder positional = new StringBuilder();
+        boolean quoted = false;
+        int parameter = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '\'') {
+                quoted = !quoted;
+            }
+            if (c == '?' && !quoted) {
+                positional.append('$').append(++parameter);
+                parameters.add("NULL");
+            } else {
+                positional.append(c);
+            }
+        }
+        return positional.toString();
+    }
+
+    private Person persistPerson() {
+        String name = UUID.randomUUID().toString();
+        Person person = new Person();
+        person.setName(name);
+        person.setEmail(STR."\{name}@mail.com");
+        person.setAge(52);
+        person.setPassword("password");
+        person.setRole(UserRole.ROLE_BASE);
+        person.setRegistrationDate(LocalDate.now());
+        return testEntityManager.persist(person);
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ru.golovkov.myrestapp.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import ru.golovkov.myrestapp.exception.httpcommon.ServiceUnavailableException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BoundedPasswordEncoderTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PasswordEncoder delegate;
+    private BoundedPasswordEncoder boundedPasswordEncoder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        delegate = mock(PasswordEncoder.class);
+        boundedPasswordEncoder = new BoundedPasswordEncoder(delegate, 1, 1, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        boundedPasswordEncoder.destroy();
+    }
+
+    @Test
+    void encodeAndMatches() {
+        when(delegate.encode(any())).thenReturn("encoded");
+        when(delegate.matches(any(), any())).thenReturn(true);
+
+        assertEquals("encoded", boundedPasswordEncoder.encode("password"));
+        assertTrue(boundedPasswordEncoder.matches("password", "encoded"));
+        assertEquals(1, meterRegistry.get("password.hashing").tag("operation", "encode").timer().count());
+        assertEquals(1, meterRegistry.get("password.hashing").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    void encode_PoolSaturated_ThrowsServiceUnavailableException() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.encode(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return "encoded";
+        });
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> boundedPasswordEncoder.encode("first"));
+        started.await();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> boundedPasswordEncoder.encode("second"));
+        while (meterRegistry.get("executor.queued").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(ServiceUnavailableException.class, () -> boundedPasswordEncoder.encode("third"));
+        assertEquals(1, meterRegistry.get("password.hashing.rejected").counter().count());
+        release.countDown();
+        assertEquals("encoded", running.get());
+        assertEquals("encoded", queued.get());
+    }
+}
@@ -0,0 +1,95 @@
+package ru.golovkov.myrestapp.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.golovkov.myrestapp.model.entity.Person;
+import ru.golovkov.myrestapp.model.entity.UserRole;
+import ru.golovkov.myrestapp.service.PersonDetailsService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class JwtFilterTest {
+
+    private static Person person;
+    private JwtFilter jwtFilter;
+    private PersonDetailsService personDetailsService;
+    private String jwt;
+
+    @BeforeEach
+    void setUp() {
+        person = new Person();
+        person.setId(1L);
+        person.setName("name");
+        person.setPassword("password");
+        person.setRole(UserRole.ROLE_ADMIN);
+
+        JwtUtil jwtUtil = new JwtUtil("secret", List.of());
+        jwt = jwtUtil.generateToken(person);
+
+        personDetailsService = mock(PersonDetailsService.class);
+        jwtFilter = new JwtFilter(jwtUtil, new ObjectMapper(), personDetailsService);
+        ReflectionTestUtils.setField(jwtFilter, "peopleUrl", "/api/people");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_BuildsPrincipalFromClaimsWithoutLoadingPerson() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        jwtFilter.doFilter(authorizedRequest("/api/people/admin"), response, new MockFilterChain());
+
+        PersonDetails personDetails = (PersonDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        assertEquals(200, response.getStatus());
+        assertEquals(person.getId(), personDetails.getPerson().getId());
+        assertEquals(person.getName(), personDetails.getUsername());
+        assertEquals(UserRole.ROLE_ADMIN.name(), personDetails.getAuthorities().iterator().next().getAuthority());
+        verifyNoInteractions(personDetailsService);
+    }
+
+    @Test
+    void doFilter_StrictAdminCheck_LoadsPersonForAdminRequests() throws Exception {
+        ReflectionTestUtils.setField(jwtFilter, "strictAdminCheck", true);
+        Person storedPerson = new Person();
+        storedPerson.setId(person.getId());
+        storedPerson.setName(person.getName());
+        storedPerson.setRole(UserRole.ROLE_BASE);
+        when(personDetailsService.loadUserByUsername(anyString())).thenReturn(new PersonDetails(storedPerson));
+
+        jwtFilter.doFilter(authorizedRequest("/api/people/admin/1"), new MockHttpServletResponse(), new MockFilterChain());
+
+        PersonDetails personDetails = (PersonDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        assertEquals(UserRole.ROLE_BASE.name(), personDetails.getAuthorities().iterator().next().getAuthority());
+        verify(personDetailsService).loadUserByUsername(person.getName());
+    }
+
+    @Test
+    void doFilter_StrictAdminCheck_SkipsDatabaseForOtherRequests() throws Exception {
+        ReflectionTestUtils.setField(jwtFilter, "strictAdminCheck", true);
+
+        jwtFilter.doFilter(authorizedRequest("/api/messages/1"), new MockHttpServletResponse(), new MockFilterChain());
+
+        verifyNoInteractions(personDetailsService);
+    }
+
+    private MockHttpServletRequest authorizedRequest(String servletPath) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", servletPath);
+        request.setServletPath(servletPath);
+        request.addHeader("Authorization", STR."Bearer \{jwt}");
+        return request;
+    }
+}
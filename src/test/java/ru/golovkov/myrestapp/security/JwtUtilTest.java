@@ -0,0 +1,53 @@
+package ru.golovkov.myrestapp.security;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.golovkov.myrestapp.model.entity.Person;
+import ru.golovkov.myrestapp.model.entity.UserRole;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtUtilTest {
+
+    private static Person person;
+
+    @BeforeEach
+    void setUp() {
+        person = new Person();
+        person.setId(1L);
+        person.setName("name");
+        person.setRole(UserRole.ROLE_BASE);
+    }
+
+    @Test
+    void verifyTokenAndGetPersonDetails() {
+        JwtUtil jwtUtil = new JwtUtil("secret", List.of());
+
+        PersonDetails personDetails = jwtUtil.verifyTokenAndGetPersonDetails(jwtUtil.generateToken(person));
+
+        assertEquals(person.getId(), personDetails.getPerson().getId());
+        assertEquals(person.getName(), personDetails.getUsername());
+        assertEquals(person.getRole(), personDetails.getPerson().getRole());
+    }
+
+    @Test
+    void verifyTokenAndGetPersonDetails_PreviousSecret_IsAccepted() {
+        String token = new JwtUtil("old-secret", List.of()).generateToken(person);
+        JwtUtil jwtUtil = new JwtUtil("new-secret", List.of("old-secret"));
+
+        assertEquals(person.getId(), jwtUtil.verifyTokenAndGetPersonDetails(token).getPerson().getId());
+    }
+
+    @Test
+    void verifyTokenAndGetPersonDetails_RetiredSecret_ThrowsJWTVerificationException() {
+        String token = new JwtUtil("old-secret", List.of()).generateToken(person);
+        JwtUtil jwtUtil = new JwtUtil("new-secret", List.of());
+
+        assertThrows(JWTVerificationException.class, () -> jwtUtil.verifyTokenAndGetPersonDetails(token));
+        assertThrows(JWTVerificationException.class, () -> jwtUtil.verifyTokenAndGetPersonDetails("not a token"));
+    }
+}
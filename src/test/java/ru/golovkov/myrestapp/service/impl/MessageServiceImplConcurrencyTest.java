@@ -0,0 +1,103 @@
+package ru.golovkov.myrestapp.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.golovkov.myrestapp.model.dto.request.MessageRequestDto;
+import ru.golovkov.myrestapp.model.entity.Person;
+import ru.golovkov.myrestapp.model.entity.UserRole;
+import ru.golovkov.myrestapp.repository.MessageRepository;
+import ru.golovkov.myrestapp.repository.PersonRepository;
+import ru.golovkov.myrestapp.service.MessageService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Bulk sends that touch the same conversations in opposite orders must not deadlock
+ * on the change_seq trigger's per-conversation locks.
+ */
+@SpringBootTest
+class MessageServiceImplConcurrencyTest {
+
+    private static final int MESSAGES_PER_SEND = 200;
+    private static final int ROUNDS = 5;
+
+    private Person sender;
+    private Person first;
+    private Person second;
+    @Autowired
+    private MessageService messageService;
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private PersonRepository personRepository;
+
+    @BeforeEach
+    void setUp() {
+        sender = personRepository.save(newPerson());
+        first = personRepository.save(newPerson());
+        second = personRepository.save(newPerson());
+    }
+
+    @AfterEach
+    void tearDown() {
+        while (!messageRepository.softDeleteByPersonId(sender.getId(), 1000).isEmpty()) {
+        }
+        while (messageRepository.purgeTombstones(LocalDateTime.now().plusMinutes(1), 1000) > 0) {
+        }
+        for (Person created : new Person[]{sender, first, second}) {
+            personRepository.softDeleteById(created.getId());
+            personRepository.purgeSoftDeletedById(created.getId());
+        }
+    }
+
+    @Test
+    void createAll_CrossingConversations_DoesNotDeadlock() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            CountDownLatch start = new CountDownLatch(1);
+            CompletableFuture<Integer> forward = bulkSend(start, first, second);
+            CompletableFuture<Integer> backward = bulkSend(start, second, first);
+            start.countDown();
+
+            assertEquals(MESSAGES_PER_SEND, forward.get(30, TimeUnit.SECONDS));
+            assertEquals(MESSAGES_PER_SEND, backward.get(30, TimeUnit.SECONDS));
+        }
+    }
+
+    private CompletableFuture<Integer> bulkSend(CountDownLatch start, Person even, Person odd) {
+        List<MessageRequestDto> requestDtoList = IntStream.range(0, MESSAGES_PER_SEND)
+                .mapToObj(i -> new MessageRequestDto("hello", sender.getId(), (i % 2 == 0 ? even : odd).getId()))
+                .toList();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return messageService.createAll(requestDtoList).size();
+        });
+    }
+
+    private Person newPerson() {
+        String name = UUID.randomUUID().toString();
+        Person newPerson = new Person();
+        newPerson.setName(name);
+        newPerson.setEmail(STR."\{name}@mail.com");
+        newPerson.setAge(52);
+        newPerson.setPassword("password");
+        newPerson.setRole(UserRole.ROLE_BASE);
+        newPerson.setRegistrationDate(LocalDate.now());
+        return newPerson;
+    }
+}
@@ -9,18 +9,24 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import ru.golovkov.myrestapp.exception.entity.MessageNotFoundException;
+import ru.golovkov.myrestapp.exception.entity.MessageOperationForbiddenException;
+import ru.golovkov.myrestapp.exception.httpcommon.BadRequestException;
 import ru.golovkov.myrestapp.mapper.MessageMapper;
 import ru.golovkov.myrestapp.model.dto.request.MessageRequestDto;
+import ru.golovkov.myrestapp.model.dto.request.MessageSearchMode;
 import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
 import ru.golovkov.myrestapp.model.entity.Message;
 import ru.golovkov.myrestapp.model.entity.Person;
 import ru.golovkov.myrestapp.repository.MessageRepository;
 import ru.golovkov.myrestapp.service.MessageService;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -93,6 +99,18 @@ class MessageServiceImplExceptionTest {
         verify(messageMapper, never()).entityToResponseDto(any());
     }
 
+    @Test
+    void createAll_InvalidBatch_ThrowsBadRequestException() {
+        List<MessageRequestDto> tooManyRequestDtos = Collections.nCopies(1001, new MessageRequestDto(content, senderId, receiverId));
+
+        assertThrows(BadRequestException.class, () -> messageService.createAll(List.of()));
+        assertThrows(BadRequestException.class, () -> messageService.createAll(tooManyRequestDtos));
+        assertThrows(BadRequestException.class,
+                () -> messageService.createAll(List.of(new MessageRequestDto(" ", senderId, receiverId))));
+
+        verify(messageRepository, never()).saveAll(anyList());
+    }
+
     @Test
     void getById_EntityDoesntExist_ThrowsPersonNotFoundException() {
         when(messageRepository.findById(anyLong())).thenReturn(Optional.empty());
@@ -118,37 +136,34 @@ class MessageServiceImplExceptionTest {
     @Test
     void getListFromSenderByIdAndContent_EntitiesDontExist_ThrowsPersonNotFoundException() {
         when(messageRepository
-                .findAllByReceiver_IdAndSender_IdAndContentContainingIgnoreCase(
+                .searchByReceiverIdAndSenderIdAndSubstring(
                         anyLong(),
                         anyLong(),
                         anyString(),
+                        anyString(),
                         any(Pageable.class)))
-                .thenReturn(Page.empty());
-        when(messageMapper.entityListToResponseDtoList(anyList())).thenReturn(mockMessageResponseDtoList);
+                .thenReturn(new SliceImpl<>(List.of()));
 
         assertThrows(MessageNotFoundException.class,
-                () -> messageService.getListFromSenderByIdAndContent(receiverId, senderId, content, pageRequest));
+                () -> messageService.getListFromSenderByIdAndContent(receiverId, senderId, content, MessageSearchMode.SUBSTRING, pageRequest));
 
-        verify(messageRepository).findAllByReceiver_IdAndSender_IdAndContentContainingIgnoreCase(receiverId, senderId, content, pageRequest);
-        verify(messageMapper, never()).entityListToResponseDtoList(mockMessageList);
+        verify(messageRepository).searchByReceiverIdAndSenderIdAndSubstring(receiverId, senderId, content, content, PageRequest.of(1, 10));
+        verify(messageMapper, never()).viewListToResponseDtoList(anyList());
     }
 
     @Test
     void getListWithSenderByIdsAndContent() {
         when(messageRepository
-                .findAllWithSenderByIdsAndContent(
-                        anyLong(),
-                        anyLong(),
+                .searchByConversationKeyAndWords(
+                        anyString(),
                         anyString(),
                         any(Pageable.class)))
-                .thenReturn(Page.empty());
-        when(messageMapper.entityListToResponseDtoList(anyList())).thenReturn(mockMessageResponseDtoList);
+                .thenReturn(new SliceImpl<>(List.of()));
 
         assertThrows(MessageNotFoundException.class,
-                () -> messageService.getListWithSenderByIdsAndContent(receiverId, senderId, content, pageRequest));
+                () -> messageService.getListWithSenderByIdsAndContent(receiverId, senderId, content, MessageSearchMode.WORDS, pageRequest));
 
-        verify(messageRepository).findAllWithSenderByIdsAndContent(receiverId, senderId, content, pageRequest);
-        verify(messageMapper, never()).entityListToResponseDtoList(mockMessageList);
+        verify(messageRepository).searchByConversationKeyAndWords("1:2", content, PageRequest.of(1, 10));
     }
 
     @Test
@@ -159,53 +174,116 @@ class MessageServiceImplExceptionTest {
                         anyLong(),
                         any(Pageable.class)))
                 .thenReturn(Page.empty());
-        when(messageMapper.entityListToResponseDtoList(anyList())).thenReturn(mockMessageResponseDtoList);
 
         assertThrows(MessageNotFoundException.class,
-                () -> messageService.getListFromSenderById(receiverId, senderId, pageRequest));
+                () -> messageService.getListFromSenderById(receiverId, senderId, true, pageRequest));
 
         verify(messageRepository).findAllByReceiver_IdAndSender_Id(receiverId, senderId, pageRequest);
-        verify(messageMapper, never()).entityListToResponseDtoList(mockMessageList);
     }
 
     @Test
     void getListWithSenderByIds() {
         when(messageRepository
-                .findAllWithSenderByIds(
-                        anyLong(),
-                        anyLong(),
+                .findAllByConversationKey(
+                        anyString(),
                         any(Pageable.class)))
                 .thenReturn(Page.empty());
-        when(messageMapper.entityListToResponseDtoList(anyList())).thenReturn(mockMessageResponseDtoList);
 
         assertThrows(MessageNotFoundException.class,
-                () -> messageService.getListWithSenderByIds(receiverId, senderId, pageRequest));
+                () -> messageService.getListWithSenderByIds(receiverId, senderId, true, pageRequest));
 
-        verify(messageRepository).findAllWithSenderByIds(receiverId, senderId, pageRequest);
-        verify(messageMapper, never()).entityListToResponseDtoList(mockMessageList);
+        verify(messageRepository).findAllByConversationKey("1:2", pageRequest);
+        verify(messageRepository, never()).countByConversationKey(anyString());
+    }
+
+    @Test
+    void getScrollWithSenderByIds() {
+        when(messageRepository.findLatestByConversationKey(anyString(), anyInt())).thenReturn(List.of());
+
+        assertThrows(MessageNotFoundException.class,
+                () -> messageService.getScrollWithSenderByIds(receiverId, senderId, null, null, 10));
+
+        verify(messageRepository).findLatestByConversationKey("1:2", 11);
+    }
+
+    @Test
+    void getScrollWithSenderByIds_InvalidCursor_ThrowsBadRequestException() {
+        assertThrows(BadRequestException.class,
+                () -> messageService.getScrollWithSenderByIds(receiverId, senderId, "not a cursor", null, 10));
+        assertThrows(BadRequestException.class,
+                () -> messageService.getScrollWithSenderByIds(receiverId, senderId, "a", "b", 10));
+
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void getListWithSenderSince_InvalidWait_ThrowsBadRequestException() {
+        assertThrows(BadRequestException.class,
+                () -> messageService.getListWithSenderSince(receiverId, senderId, null, Duration.ofMinutes(5)));
+        assertThrows(BadRequestException.class,
+                () -> messageService.getListWithSenderSince(receiverId, senderId, null, Duration.ofSeconds(-1)));
+
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void getChangesWithSenderByIds_InvalidTokenOrSize_ThrowsBadRequestException() {
+        assertThrows(BadRequestException.class,
+                () -> messageService.getChangesWithSenderByIds(receiverId, senderId, "not a token", 10));
+        assertThrows(BadRequestException.class,
+                () -> messageService.getChangesWithSenderByIds(receiverId, senderId, null, 0));
+
+        verify(messageRepository, never()).findChangesByConversationKey(anyString(), anyLong(), anyBoolean(), anyInt());
     }
 
     @Test
     void updateById() {
-        when(messageRepository.findById(anyLong())).thenReturn(Optional.empty());
-        when(messageRepository.save(any(Message.class))).thenReturn(mockMessage);
-        when(messageMapper.entityToResponseDto(any(Message.class))).thenReturn(mockMessageResponseDto);
+        when(messageRepository.updateContentByIdAndSenderId(anyLong(), anyLong(), anyString())).thenReturn(Optional.empty());
+        when(messageRepository.findSenderIdById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(MessageNotFoundException.class, () -> messageService.updateById(mockMessageRequestDto, id));
 
-        verify(messageRepository).findById(id);
-        verify(messageMapper, never()).updateEntityFromRequestDto(mockMessage, mockMessageRequestDto);
-        verify(messageRepository, never()).save(mockMessage);
-        verify(messageMapper, never()).entityToResponseDto(mockMessage);
+        verify(messageRepository).updateContentByIdAndSenderId(id, senderId, content);
+        verify(messageRepository).findSenderIdById(id);
+        verify(messageMapper, never()).viewToResponseDto(any());
+    }
+
+    @Test
+    void updateById_AnotherSender_ThrowsMessageOperationForbiddenException() {
+        when(messageRepository.updateContentByIdAndSenderId(anyLong(), anyLong(), anyString())).thenReturn(Optional.empty());
+        when(messageRepository.findSenderIdById(anyLong())).thenReturn(Optional.of(receiverId));
+
+        assertThrows(MessageOperationForbiddenException.class, () -> messageService.updateById(mockMessageRequestDto, id));
+
+        verify(messageMapper, never()).viewToResponseDto(any());
+    }
+
+    @Test
+    void deleteById_AnotherSender_ThrowsMessageOperationForbiddenException() {
+        when(messageRepository.deleteByIdAndSenderId(anyLong(), anyLong())).thenReturn(Optional.empty());
+        when(messageRepository.findSenderIdById(anyLong())).thenReturn(Optional.of(receiverId));
+
+        assertThrows(MessageOperationForbiddenException.class, () -> messageService.deleteById(id, senderId));
+
+        verify(messageRepository).deleteByIdAndSenderId(id, senderId);
+        verify(messageRepository).findSenderIdById(id);
+    }
+
+    @Test
+    void deleteById_EntityDoesntExist_ThrowsMessageNotFoundException() {
+        when(messageRepository.deleteByIdAndSenderId(anyLong(), anyLong())).thenReturn(Optional.empty());
+        when(messageRepository.findSenderIdById(anyLong())).thenReturn(Optional.empty());
+
+        assertThrows(MessageNotFoundException.class, () -> messageService.deleteById(id, senderId));
     }
 
     @Test
     void deleteById() {
-        when(messageRepository.existsById(anyLong())).thenReturn(false);
+        when(messageRepository.findById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(MessageNotFoundException.class, () -> messageService.deleteById(id));
 
-        verify(messageRepository).existsById(id);
-        verify(messageRepository, never()).deleteById(id);
+        verify(messageRepository).findById(id);
+        verify(messageRepository, never()).delete(any(Message.class));
     }
 }
\ No newline at end of file
@@ -6,25 +6,47 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.*;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import ru.golovkov.myrestapp.mapper.MessageMapper;
+import ru.golovkov.myrestapp.model.dto.MessageCursor;
+import ru.golovkov.myrestapp.model.dto.MessageSinceCursor;
+import ru.golovkov.myrestapp.model.dto.MessageSubmission;
+import ru.golovkov.myrestapp.model.dto.MessageSyncToken;
 import ru.golovkov.myrestapp.model.dto.request.MessageRequestDto;
+import ru.golovkov.myrestapp.model.dto.request.MessageSearchMode;
 import ru.golovkov.myrestapp.model.dto.response.MessageResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.MessageScrollResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.MessageSinceResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.MessageSyncResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.SliceResponseDto;
 import ru.golovkov.myrestapp.model.entity.Message;
 import ru.golovkov.myrestapp.model.entity.Person;
+import ru.golovkov.myrestapp.model.projection.MessageChangeView;
+import ru.golovkov.myrestapp.model.projection.MessageMutationView;
+import ru.golovkov.myrestapp.model.projection.MessageView;
+import ru.golovkov.myrestapp.realtime.MessageEvent;
+import ru.golovkov.myrestapp.realtime.MessageEventType;
+import ru.golovkov.myrestapp.realtime.MessageLongPollRegistry;
 import ru.golovkov.myrestapp.repository.MessageRepository;
 import ru.golovkov.myrestapp.service.MessageService;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @SpringBootTest
+@RecordApplicationEvents
 class MessageServiceImplTest {
 
     private static Message mockMessage;
@@ -32,7 +54,8 @@ class MessageServiceImplTest {
     private static MessageResponseDto mockMessageResponseDto;
     private static List<Message> mockMessageList;
     private static List<MessageResponseDto> mockMessageResponseDtoList;
-    private static Page<Message> mockMessagePage;
+    private static Page<MessageResponseDto> mockMessageResponseDtoPage;
+    private static List<MessageView> mockMessageViewList;
     private static Long id;
     private static Long senderId;
     private static Long receiverId;
@@ -44,6 +67,10 @@ class MessageServiceImplTest {
     private MessageMapper messageMapper;
     @MockBean
     private MessageRepository messageRepository;
+    @Autowired
+    private ApplicationEvents applicationEvents;
+    @Autowired
+    private MessageLongPollRegistry messageLongPollRegistry;
 
     @BeforeEach
     void setUp() {
@@ -75,7 +102,8 @@ class MessageServiceImplTest {
 
         mockMessageList = new ArrayList<>(List.of(mockMessage));
         mockMessageResponseDtoList = new ArrayList<>(List.of(mockMessageResponseDto));
-        mockMessagePage = new PageImpl<>(mockMessageList);
+        mockMessageResponseDtoPage = new PageImpl<>(mockMessageResponseDtoList);
+        mockMessageViewList = List.of(mock(MessageView.class));
     }
 
     @Test
@@ -90,6 +118,36 @@ class MessageServiceImplTest {
         verify(messageMapper).requestDtoToEntity(mockMessageRequestDto);
         verify(messageRepository).save(mockMessage);
         verify(messageMapper).entityToResponseDto(mockMessage);
+        assertEquals(List.of(new MessageEvent(MessageEventType.CREATED, mockMessageResponseDto, receiverId)),
+                applicationEvents.stream(MessageEvent.class).toList());
+    }
+
+    @Test
+    void submit_WriteBehindDisabled_SavesImmediately() {
+        when(messageMapper.requestDtoToEntity(mockMessageRequestDto)).thenReturn(mockMessage);
+        when(messageRepository.save(any(Message.class))).thenReturn(mockMessage);
+        when(messageMapper.entityToResponseDto(mockMessage)).thenReturn(mockMessageResponseDto);
+
+        MessageSubmission messageSubmission = messageService.submit(mockMessageRequestDto, false);
+
+        assertEquals(new MessageSubmission(mockMessageResponseDto, true), messageSubmission);
+        verify(messageRepository).save(mockMessage);
+    }
+
+    @Test
+    void createAll() {
+        MessageRequestDto secondRequestDto = new MessageRequestDto("bye", senderId, receiverId);
+        when(messageMapper.requestDtoToEntity(any(MessageRequestDto.class))).thenReturn(mockMessage);
+        when(messageRepository.saveAll(anyList())).thenReturn(mockMessageList);
+        when(messageMapper.entityListToResponseDtoList(mockMessageList)).thenReturn(mockMessageResponseDtoList);
+
+        List<MessageResponseDto> messageResponseDtoList =
+                messageService.createAll(List.of(new MessageRequestDto(content, senderId, receiverId), secondRequestDto));
+
+        assertEquals(mockMessageResponseDtoList, messageResponseDtoList);
+        verify(messageMapper, times(2)).requestDtoToEntity(any(MessageRequestDto.class));
+        verify(messageRepository).saveAll(anyList());
+        verify(messageRepository, never()).save(any(Message.class));
     }
 
     @Test
@@ -113,45 +171,43 @@ class MessageServiceImplTest {
 
         assertEquals(mockMessageResponseDtoList, messageResponseDtoList);
         verify(messageRepository).findAll();
-        verify(messageMapper).entityListToResponseDtoList(mockMessageList);
     }
 
     @Test
     void getListFromSenderByIdAndContent() {
         when(messageRepository
-                .findAllByReceiver_IdAndSender_IdAndContentContainingIgnoreCase(
+                .searchByReceiverIdAndSenderIdAndSubstring(
                         anyLong(),
                         anyLong(),
                         anyString(),
+                        anyString(),
                         any(Pageable.class)))
-                .thenReturn(mockMessagePage);
-        when(messageMapper.entityListToResponseDtoList(mockMessageList)).thenReturn(mockMessageResponseDtoList);
+                .thenReturn(new SliceImpl<>(mockMessageViewList));
+        when(messageMapper.viewListToResponseDtoList(mockMessageViewList)).thenReturn(mockMessageResponseDtoList);
 
-        List<MessageResponseDto> messageResponseDtoList =
-                messageService.getListFromSenderByIdAndContent(receiverId, senderId, content, pageRequest);
+        SliceResponseDto<MessageResponseDto> messageResponseDtoSlice =
+                messageService.getListFromSenderByIdAndContent(receiverId, senderId, "50%_off", MessageSearchMode.SUBSTRING, pageRequest);
 
-        assertEquals(mockMessageResponseDtoList, messageResponseDtoList);
-        verify(messageRepository).findAllByReceiver_IdAndSender_IdAndContentContainingIgnoreCase(receiverId, senderId, content, pageRequest);
-        verify(messageMapper).entityListToResponseDtoList(mockMessageList);
+        assertEquals(mockMessageResponseDtoList, messageResponseDtoSlice.getContent());
+        verify(messageRepository).searchByReceiverIdAndSenderIdAndSubstring(
+                receiverId, senderId, "50%_off", "50\\%\\_off", PageRequest.of(1, 10));
     }
 
     @Test
     void getListWithSenderByIdsAndContent() {
         when(messageRepository
-                .findAllWithSenderByIdsAndContent(
-                        anyLong(),
-                        anyLong(),
+                .searchByConversationKeyAndWords(
+                        anyString(),
                         anyString(),
                         any(Pageable.class)))
-                .thenReturn(mockMessagePage);
-        when(messageMapper.entityListToResponseDtoList(mockMessageList)).thenReturn(mockMessageResponseDtoList);
+                .thenReturn(new SliceImpl<>(mockMessageViewList));
+        when(messageMapper.viewListToResponseDtoList(mockMessageViewList)).thenReturn(mockMessageResponseDtoList);
 
-        List<MessageResponseDto> messageResponseDtoList =
-                messageService.getListWithSenderByIdsAndContent(receiverId, senderId, content, pageRequest);
+        SliceResponseDto<MessageResponseDto> messageResponseDtoSlice =
+                messageService.getListWithSenderByIdsAndContent(receiverId, senderId, content, MessageSearchMode.WORDS, pageRequest);
 
-        assertEquals(mockMessageResponseDtoList, messageResponseDtoList);
-        verify(messageRepository).findAllWithSenderByIdsAndContent(receiverId, senderId, content, pageRequest);
-        verify(messageMapper).entityListToResponseDtoList(mockMessageList);
+        assertEquals(mockMessageResponseDtoList, messageResponseDtoSlice.getContent());
+        verify(messageRepository).searchByConversationKeyAndWords("1:2", content, PageRequest.of(1, 10));
     }
 
     @Test
@@ -161,55 +217,267 @@ class MessageServiceImplTest {
                         anyLong(),
                         anyLong(),
                         any(Pageable.class)))
-                .thenReturn(mockMessagePage);
-        when(messageMapper.entityListToResponseDtoList(mockMessageList)).thenReturn(mockMessageResponseDtoList);
+                .thenReturn(mockMessageResponseDtoPage);
 
-        List<MessageResponseDto> messageResponseDtoList =
-                messageService.getListFromSenderById(receiverId, senderId, pageRequest);
+        SliceResponseDto<MessageResponseDto> messageResponseDtoSlice =
+                messageService.getListFromSenderById(receiverId, senderId, false, pageRequest);
 
-        assertEquals(mockMessageResponseDtoList, messageResponseDtoList);
+        assertEquals(mockMessageResponseDtoList, messageResponseDtoSlice.getContent());
+        assertNull(messageResponseDtoSlice.getTotalElements());
         verify(messageRepository).findAllByReceiver_IdAndSender_Id(receiverId, senderId, pageRequest);
-        verify(messageMapper).entityListToResponseDtoList(mockMessageList);
+        verify(messageRepository, never()).countByReceiver_IdAndSender_Id(anyLong(), anyLong());
     }
 
     @Test
     void getListWithSenderByIds() {
         when(messageRepository
-                .findAllWithSenderByIds(
-                        anyLong(),
-                        anyLong(),
+                .findAllByConversationKey(
+                        anyString(),
                         any(Pageable.class)))
-                .thenReturn(mockMessagePage);
-        when(messageMapper.entityListToResponseDtoList(mockMessageList)).thenReturn(mockMessageResponseDtoList);
+                .thenReturn(new SliceImpl<>(mockMessageResponseDtoList, pageRequest, true));
+        when(messageRepository.countByConversationKey(anyString())).thenReturn(52L);
 
-        List<MessageResponseDto> messageResponseDtoList =
-                messageService.getListWithSenderByIds(receiverId, senderId, pageRequest);
+        SliceResponseDto<MessageResponseDto> messageResponseDtoSlice =
+                messageService.getListWithSenderByIds(receiverId, senderId, true, pageRequest);
 
-        assertEquals(mockMessageResponseDtoList, messageResponseDtoList);
-        verify(messageRepository).findAllWithSenderByIds(receiverId, senderId, pageRequest);
-        verify(messageMapper).entityListToResponseDtoList(mockMessageList);
+        assertEquals(mockMessageResponseDtoList, messageResponseDtoSlice.getContent());
+        assertTrue(messageResponseDtoSlice.isHasNext());
+        assertEquals(52L, messageResponseDtoSlice.getTotalElements());
+        verify(messageRepository).findAllByConversationKey("1:2", pageRequest);
+        verify(messageRepository).countByConversationKey("1:2");
+    }
+
+    @Test
+    void getListWithSenderByIds_FirstPage_ServedFromTailCache() {
+        PageRequest firstPageRequest = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "sentAt"));
+        when(messageRepository.findLatestByConversationKey(anyString(), anyInt())).thenReturn(mockMessageResponseDtoList);
+
+        messageService.getListWithSenderByIds(7L, 8L, false, firstPageRequest);
+        SliceResponseDto<MessageResponseDto> messageResponseDtoSlice =
+                messageService.getListWithSenderByIds(8L, 7L, false, firstPageRequest);
+
+        assertEquals(mockMessageResponseDtoList, messageResponseDtoSlice.getContent());
+        assertFalse(messageResponseDtoSlice.isHasNext());
+        verify(messageRepository).findLatestByConversationKey("7:8", 51);
+        verify(messageRepository, never()).findAllByConversationKey(anyString(), any(Pageable.class));
+    }
+
+    @Test
+    void exportWithSenderByIds() {
+        List<MessageResponseDto> exported = new ArrayList<>();
+        boolean[] closed = {false};
+        when(messageRepository.streamByConversationKey(anyString()))
+                .thenReturn(mockMessageResponseDtoList.stream().onClose(() -> closed[0] = true));
+
+        messageService.exportWithSenderByIds(receiverId, senderId, exported::add);
+
+        assertEquals(mockMessageResponseDtoList, exported);
+        assertTrue(closed[0]);
+        verify(messageRepository).streamByConversationKey("1:2");
+    }
+
+    @Test
+    void getScrollWithSenderByIds() {
+        MessageResponseDto olderMessageResponseDto = new MessageResponseDto();
+        olderMessageResponseDto.setId(id - 1);
+        olderMessageResponseDto.setSentAt(mockMessage.getSentAt().minusMinutes(1));
+        when(messageRepository.findLatestByConversationKey(anyString(), anyInt()))
+                .thenReturn(List.of(olderMessageResponseDto, mockMessageResponseDto));
+
+        MessageScrollResponseDto messageScrollResponseDto =
+                messageService.getScrollWithSenderByIds(receiverId, senderId, null, null, 1);
+
+        assertEquals(mockMessageResponseDtoList, messageScrollResponseDto.getMessages());
+        assertTrue(messageScrollResponseDto.isHasMore());
+        assertEquals(new MessageCursor(mockMessage.getSentAt(), id).encode(), messageScrollResponseDto.getNextCursor());
+        verify(messageRepository).findLatestByConversationKey("1:2", 2);
+    }
+
+    @Test
+    void getScrollWithSenderByIdsAfterCursor() {
+        MessageCursor cursor = new MessageCursor(mockMessage.getSentAt().minusMinutes(1), id - 1);
+        when(messageRepository.findByConversationKeyAfter(anyString(), any(LocalDateTime.class), anyLong(), anyInt()))
+                .thenReturn(mockMessageResponseDtoList);
+
+        MessageScrollResponseDto messageScrollResponseDto =
+                messageService.getScrollWithSenderByIds(receiverId, senderId, null, cursor.encode(), 10);
+
+        assertEquals(mockMessageResponseDtoList, messageScrollResponseDto.getMessages());
+        assertFalse(messageScrollResponseDto.isHasMore());
+        verify(messageRepository).findByConversationKeyAfter("1:2", cursor.sentAt(), cursor.id(), 11);
+    }
+
+    @Test
+    void getScrollWithSenderByIds_PastEndOfCursor_ReturnsEmptyScroll() {
+        MessageCursor cursor = new MessageCursor(mockMessage.getSentAt(), id);
+        when(messageRepository.findByConversationKeyAfter(anyString(), any(LocalDateTime.class), anyLong(), anyInt()))
+                .thenReturn(List.of());
+        when(messageRepository.findByConversationKeyBefore(anyString(), any(LocalDateTime.class), anyLong(), anyInt()))
+                .thenReturn(List.of());
+
+        MessageScrollResponseDto afterLast =
+                messageService.getScrollWithSenderByIds(receiverId, senderId, null, cursor.encode(), 10);
+        MessageScrollResponseDto beforeFirst =
+                messageService.getScrollWithSenderByIds(receiverId, senderId, cursor.encode(), null, 10);
+
+        assertEquals(new MessageScrollResponseDto(List.of(), cursor.encode(), false), afterLast);
+        assertEquals(new MessageScrollResponseDto(List.of(), cursor.encode(), false), beforeFirst);
+    }
+
+    @Test
+    void getListWithSenderSince_NewerChangesExist_ReturnsImmediately() {
+        MessageChangeView change = mockChange(3L, 12L, false);
+        when(messageRepository.findChangesByConversationKey(anyString(), anyLong(), anyBoolean(), anyInt())).thenReturn(List.of(change));
+        when(messageMapper.viewListToResponseDtoList(List.of(change))).thenReturn(mockMessageResponseDtoList);
+
+        CompletableFuture<MessageSinceResponseDto> messageSince = messageService
+                .getListWithSenderSince(receiverId, senderId, new MessageSinceCursor(10L).encode(), Duration.ofSeconds(25));
+
+        assertEquals(mockMessageResponseDtoList, messageSince.getNow(null).getMessages());
+        assertEquals(new MessageSinceCursor(12L).encode(), messageSince.getNow(null).getNextCursor());
+        assertEquals(0, messageLongPollRegistry.getWaiterCount());
+        verify(messageRepository).findChangesByConversationKey("1:2", 10L, false, 100);
+    }
+
+    @Test
+    void getListWithSenderSince_NoNewerChanges_ReadsAgainOnEvent() throws Exception {
+        // The client has seen message 5; message 3 took its id earlier but committed later.
+        MessageChangeView lateCommit = mockChange(3L, 12L, false);
+        when(messageRepository.findChangesByConversationKey(anyString(), anyLong(), anyBoolean(), anyInt()))
+                .thenReturn(List.of(), List.of(lateCommit));
+        when(messageMapper.viewListToResponseDtoList(List.of(lateCommit))).thenReturn(mockMessageResponseDtoList);
+
+        CompletableFuture<MessageSinceResponseDto> messageSince = messageService
+                .getListWithSenderSince(receiverId, senderId, new MessageSinceCursor(10L).encode(), Duration.ofSeconds(25));
+        assertFalse(messageSince.isDone());
+        messageLongPollRegistry.onMessageEvent(new MessageEvent(MessageEventType.CREATED, mockMessageResponseDto, receiverId));
+
+        MessageSinceResponseDto messageSinceResponseDto = messageSince.get(5, TimeUnit.SECONDS);
+        assertEquals(mockMessageResponseDtoList, messageSinceResponseDto.getMessages());
+        assertEquals(new MessageSinceCursor(12L).encode(), messageSinceResponseDto.getNextCursor());
+        verify(messageRepository, times(2)).findChangesByConversationKey("1:2", 10L, false, 100);
+    }
+
+    @Test
+    void getListWithSenderSince_WithoutCursor_StartsFromLastChange() {
+        when(messageRepository.findLastChangeSeqByConversationKey(anyString())).thenReturn(42L);
+        when(messageRepository.findChangesByConversationKey(anyString(), anyLong(), anyBoolean(), anyInt())).thenReturn(List.of());
+
+        MessageSinceResponseDto messageSinceResponseDto =
+                messageService.getListWithSenderSince(receiverId, senderId, null, Duration.ZERO).getNow(null);
+
+        assertEquals(List.of(), messageSinceResponseDto.getMessages());
+        assertEquals(new MessageSinceCursor(42L).encode(), messageSinceResponseDto.getNextCursor());
+        verify(messageRepository).findChangesByConversationKey("1:2", 42L, false, 100);
+    }
+
+    @Test
+    void getChangesWithSenderByIds() {
+        MessageChangeView edited = mockChange(1L, 10L, false);
+        MessageChangeView deleted = mockChange(2L, 11L, true);
+        MessageChangeView next = mockChange(3L, 12L, false);
+        MessageSyncToken token = new MessageSyncToken(9L, Instant.now().minusSeconds(60).truncatedTo(ChronoUnit.MILLIS));
+        when(messageRepository.findChangesByConversationKey(anyString(), anyLong(), anyBoolean(), anyInt()))
+                .thenReturn(List.of(edited, deleted, next));
+        when(messageMapper.viewListToResponseDtoList(List.of(edited))).thenReturn(mockMessageResponseDtoList);
+
+        MessageSyncResponseDto messageSyncResponseDto =
+                messageService.getChangesWithSenderByIds(receiverId, senderId, token.encode(), 2);
+
+        assertEquals(mockMessageResponseDtoList, messageSyncResponseDto.getUpserts());
+        assertEquals(List.of(2L), messageSyncResponseDto.getDeletedIds());
+        assertTrue(messageSyncResponseDto.isHasMore());
+        assertFalse(messageSyncResponseDto.isFullResync());
+        assertEquals(new MessageSyncToken(11L, token.issuedAt()), MessageSyncToken.decode(messageSyncResponseDto.getSyncToken()));
+        verify(messageRepository).findChangesByConversationKey("1:2", 9L, true, 3);
+    }
+
+    @Test
+    void getChangesWithSenderByIds_ExpiredToken_RequiresFullResync() {
+        MessageSyncToken token = new MessageSyncToken(9L, Instant.now().minus(Duration.ofDays(365)));
+        when(messageRepository.findChangesByConversationKey(anyString(), anyLong(), anyBoolean(), anyInt()))
+                .thenReturn(List.of());
+        when(messageMapper.viewListToResponseDtoList(anyList())).thenReturn(List.of());
+
+        MessageSyncResponseDto messageSyncResponseDto =
+                messageService.getChangesWithSenderByIds(receiverId, senderId, token.encode(), 10);
+
+        assertTrue(messageSyncResponseDto.isFullResync());
+        assertFalse(messageSyncResponseDto.isHasMore());
+        verify(messageRepository).findChangesByConversationKey("1:2", 0L, false, 11);
     }
 
     @Test
     void updateById() {
-        when(messageRepository.findById(anyLong())).thenReturn(Optional.of(mockMessage));
-        when(messageRepository.save(any(Message.class))).thenReturn(mockMessage);
-        when(messageMapper.entityToResponseDto(mockMessage)).thenReturn(mockMessageResponseDto);
+        MessageMutationView mutation = mockMutation();
+        when(messageRepository.updateContentByIdAndSenderId(anyLong(), anyLong(), anyString())).thenReturn(Optional.of(mutation));
+        when(messageMapper.viewToResponseDto(mutation)).thenReturn(mockMessageResponseDto);
 
         MessageResponseDto messageResponseDto = messageService.updateById(mockMessageRequestDto, id);
 
         assertEquals(mockMessageResponseDto, messageResponseDto);
-        verify(messageRepository).findById(id);
-        verify(messageRepository).save(mockMessage);
-        verify(messageMapper).updateEntityFromRequestDto(mockMessage, mockMessageRequestDto);
+        verify(messageRepository).updateContentByIdAndSenderId(id, senderId, content);
+        verify(messageRepository, never()).findById(anyLong());
+        verify(messageRepository, never()).findSenderIdById(anyLong());
+        assertEquals(List.of(new MessageEvent(MessageEventType.UPDATED, mockMessageResponseDto, receiverId)),
+                applicationEvents.stream(MessageEvent.class).toList());
+    }
+
+    @Test
+    void deleteById_BySender() {
+        MessageMutationView mutation = mockMutation();
+        when(messageRepository.deleteByIdAndSenderId(anyLong(), anyLong())).thenReturn(Optional.of(mutation));
+        when(messageMapper.viewToResponseDto(mutation)).thenReturn(mockMessageResponseDto);
+
+        MessageResponseDto messageResponseDto = messageService.deleteById(id, senderId);
+
+        assertEquals(mockMessageResponseDto, messageResponseDto);
+        verify(messageRepository).deleteByIdAndSenderId(id, senderId);
+        verify(messageRepository, never()).findSenderIdById(anyLong());
+        assertEquals(List.of(new MessageEvent(MessageEventType.DELETED, mockMessageResponseDto, receiverId)),
+                applicationEvents.stream(MessageEvent.class).toList());
+    }
+
+    @Test
+    void deleteByPersonId_PublishesDeletedEvents() {
+        MessageMutationView mutation = mockMutation();
+        when(messageRepository.softDeleteByPersonId(anyLong(), anyInt())).thenReturn(List.of(mutation, mutation));
+        when(messageMapper.viewToResponseDto(mutation)).thenReturn(mockMessageResponseDto);
+
+        int deleted = messageService.deleteByPersonId(senderId, 10);
+
+        assertEquals(2, deleted);
+        verify(messageRepository).softDeleteByPersonId(senderId, 10);
+        assertEquals(2, applicationEvents.stream(MessageEvent.class)
+                .filter(event -> event.type() == MessageEventType.DELETED)
+                .count());
+    }
+
+    private MessageMutationView mockMutation() {
+        MessageMutationView mutation = mock(MessageMutationView.class);
+        when(mutation.getId()).thenReturn(id);
+        when(mutation.getSenderId()).thenReturn(senderId);
+        when(mutation.getReceiverId()).thenReturn(receiverId);
+        return mutation;
+    }
+
+    private MessageChangeView mockChange(Long changeId, Long changeSeq, boolean deleted) {
+        MessageChangeView change = mock(MessageChangeView.class);
+        when(change.getId()).thenReturn(changeId);
+        when(change.getChangeSeq()).thenReturn(changeSeq);
+        when(change.isDeleted()).thenReturn(deleted);
+        return change;
     }
 
     @Test
     void deleteById() {
-        when(messageRepository.existsById(anyLong())).thenReturn(true);
+        when(messageRepository.findById(anyLong())).thenReturn(Optional.of(mockMessage));
+        when(messageMapper.entityToResponseDto(mockMessage)).thenReturn(mockMessageResponseDto);
 
         messageService.deleteById(id);
 
-        verify(messageRepository).deleteById(id);
+        verify(messageRepository).delete(mockMessage);
+        assertEquals(List.of(new MessageEvent(MessageEventType.DELETED, mockMessageResponseDto, receiverId)),
+                applicationEvents.stream(MessageEvent.class).toList());
     }
 }
\ No newline at end of file
@@ -5,14 +5,17 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import ru.golovkov.myrestapp.config.CacheConfig;
 import ru.golovkov.myrestapp.exception.entity.PersonNotFoundException;
 import ru.golovkov.myrestapp.exception.entity.WrongPasswordException;
+import ru.golovkov.myrestapp.exception.httpcommon.BadRequestException;
 import ru.golovkov.myrestapp.mapper.PersonMapper;
 import ru.golovkov.myrestapp.model.dto.request.PersonRequestDto;
 import ru.golovkov.myrestapp.model.dto.response.PersonResponseDto;
@@ -47,9 +50,12 @@ class PersonServiceImplExceptionTest {
     private PersonRepository personRepository;
     @MockBean
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private CacheManager cacheManager;
 
     @BeforeEach
     void setUp() {
+        cacheManager.getCache(CacheConfig.PERSON_PROFILES).clear();
         id = 1L;
         name = "name";
         pageRequest = PageRequest.of(1, 10, Sort.by(Sort.Direction.ASC, "name"));
@@ -96,9 +102,10 @@ class PersonServiceImplExceptionTest {
         when(personRepository.findById(anyLong())).thenReturn(Optional.empty());
         when(personMapper.entityToResponseDto(mockPerson)).thenReturn(mockPersonResponseDto);
 
+        assertThrows(PersonNotFoundException.class, () -> personService.getById(id));
         assertThrows(PersonNotFoundException.class, () -> personService.getById(id));
 
-        verify(personRepository).findById(id);
+        verify(personRepository, times(2)).findById(id);
         verify(personMapper, never()).entityToResponseDto(mockPerson);
     }
 
@@ -130,9 +137,10 @@ class PersonServiceImplExceptionTest {
         when(personMapper.entityListToResponseDtoList(mockPersonList)).thenReturn(List.of());
 
         assertThrows(PersonNotFoundException.class,
-                () -> personService.getAllByNameContaining(name, pageRequest));
+                () -> personService.getAllByNameContaining(name, true, pageRequest));
 
         verify(personRepository).findAllByNameContainingIgnoreCase(pageRequest, name);
+        verify(personRepository, never()).countByNameContainingIgnoreCase(anyString());
         verify(personMapper, never()).entityListToResponseDtoList(List.of());
     }
 
@@ -166,25 +174,41 @@ class PersonServiceImplExceptionTest {
         verify(personMapper, never()).entityToResponseDto(mockPerson);
     }
 
+    @Test
+    void updateByIdAndIssueToken_BlankPassword_ThrowsWrongPasswordException() {
+        mockPersonRequestDto.setPassword(" ");
+
+        assertThrows(WrongPasswordException.class,
+                () -> personService.updateByIdAndIssueToken(mockPersonRequestDto, id));
+
+        verifyNoInteractions(personRepository, passwordEncoder);
+    }
+
     @Test
     void deleteById_EntityDoesntExist_ThrowsPersonNotFoundException() {
-        when(personRepository.existsById(anyLong())).thenReturn(false);
+        when(personRepository.softDeleteById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(PersonNotFoundException.class,
                 () -> personService.deleteById(id));
 
-        verify(personRepository, never()).deleteById(id);
+        verify(personRepository).softDeleteById(id);
+    }
+
+    @Test
+    void suggestByNamePrefix_InvalidPrefixOrLimit_ThrowsBadRequestException() {
+        assertThrows(BadRequestException.class, () -> personService.suggestByNamePrefix(" ", 10));
+        assertThrows(BadRequestException.class, () -> personService.suggestByNamePrefix(name, 0));
+        assertThrows(BadRequestException.class, () -> personService.suggestByNamePrefix(name, 51));
     }
 
     @Test
     void deleteByName_EntityDoesntExist_ThrowsPersonNotFoundException() {
-        when(personRepository.existsByName(anyString())).thenReturn(false);
+        when(personRepository.softDeleteByName(anyString())).thenReturn(Optional.empty());
 
         assertThrows(PersonNotFoundException.class,
                 () -> personService.deleteByName(name));
 
-        verify(personRepository).existsByName(name);
-        verify(personRepository, never()).deleteByName(name);
+        verify(personRepository).softDeleteByName(name);
     }
 
     @Test
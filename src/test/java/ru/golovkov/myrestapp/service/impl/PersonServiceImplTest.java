@@ -1,28 +1,44 @@
 package ru.golovkov.myrestapp.service.impl;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.*;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import ru.golovkov.myrestapp.cache.SingleFlight;
+import ru.golovkov.myrestapp.config.CacheConfig;
 import ru.golovkov.myrestapp.mapper.PersonMapper;
 import ru.golovkov.myrestapp.model.dto.request.PersonRequestDto;
+import ru.golovkov.myrestapp.model.dto.response.JwtResponseDto;
 import ru.golovkov.myrestapp.model.dto.response.PersonResponseDto;
+import ru.golovkov.myrestapp.model.dto.response.PersonSuggestionDto;
+import ru.golovkov.myrestapp.model.dto.response.SliceResponseDto;
 import ru.golovkov.myrestapp.model.entity.Person;
 import ru.golovkov.myrestapp.model.entity.UserRole;
 import ru.golovkov.myrestapp.repository.PersonRepository;
+import ru.golovkov.myrestapp.security.JwtUtil;
+import ru.golovkov.myrestapp.security.PersonDetails;
 import ru.golovkov.myrestapp.service.PersonService;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @SpringBootTest
 class PersonServiceImplTest {
@@ -44,9 +60,18 @@ class PersonServiceImplTest {
     private PersonRepository personRepository;
     @MockBean
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private JwtUtil jwtUtil;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @SpyBean
+    private SingleFlight singleFlight;
 
     @BeforeEach
     void setUp() {
+        personProfilesCache().clear();
         id = 1L;
         name = "name";
         pageRequest = PageRequest.of(1, 10, Sort.by(Sort.Direction.ASC, "name"));
@@ -134,14 +159,32 @@ class PersonServiceImplTest {
         when(personRepository.findAllByNameContainingIgnoreCase(any(Pageable.class), anyString())).thenReturn(mockPersonPage);
         when(personMapper.entityListToResponseDtoList(mockPersonList)).thenReturn(mockPersonResponseDtoList);
 
-        List<PersonResponseDto> personResponseDtoList =
-                personService.getAllByNameContaining(name, pageRequest);
+        SliceResponseDto<PersonResponseDto> personResponseDtoSlice =
+                personService.getAllByNameContaining(name, false, pageRequest);
 
-        assertEquals(mockPersonResponseDtoList, personResponseDtoList);
+        assertEquals(mockPersonResponseDtoList, personResponseDtoSlice.getContent());
+        assertNull(personResponseDtoSlice.getTotalElements());
         verify(personRepository).findAllByNameContainingIgnoreCase(pageRequest, name);
+        verify(personRepository, never()).countByNameContainingIgnoreCase(anyString());
         verify(personMapper).entityListToResponseDtoList(mockPersonList);
     }
 
+    @Test
+    void getAllByNameContainingWithTotal() {
+        when(personRepository.findAllBy(any(Pageable.class))).thenReturn(new SliceImpl<>(mockPersonList, pageRequest, true));
+        when(personRepository.count()).thenReturn(52L);
+        when(personMapper.entityListToResponseDtoList(mockPersonList)).thenReturn(mockPersonResponseDtoList);
+
+        SliceResponseDto<PersonResponseDto> personResponseDtoSlice =
+                personService.getAllByNameContaining("", true, pageRequest);
+
+        assertEquals(mockPersonResponseDtoList, personResponseDtoSlice.getContent());
+        assertTrue(personResponseDtoSlice.isHasNext());
+        assertEquals(52L, personResponseDtoSlice.getTotalElements());
+        verify(personRepository).findAllBy(pageRequest);
+        verify(personRepository).count();
+    }
+
     @Test
     void updateById() {
         when(personRepository.findById(anyLong())).thenReturn(Optional.of(mockPerson));
@@ -157,6 +200,84 @@ class PersonServiceImplTest {
         verify(personMapper).entityToResponseDto(mockPerson);
     }
 
+    @Test
+    void getByIdAndName_RepeatedLookups_ServedFromCache() {
+        when(personRepository.findById(anyLong())).thenReturn(Optional.of(mockPerson));
+        when(personRepository.findByName(anyString())).thenReturn(Optional.of(mockPerson));
+        when(personMapper.entityToResponseDto(mockPerson)).thenReturn(mockPersonResponseDto);
+
+        personService.getById(id);
+        personService.getByName(name);
+        assertEquals(mockPersonResponseDto, personService.getById(id));
+        assertEquals(mockPersonResponseDto, personService.getByName(name));
+
+        verify(personRepository, times(1)).findById(id);
+        verify(personRepository, times(1)).findByName(name);
+    }
+
+    @Test
+    void getById_ConcurrentMisses_ShareOneQuery() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(personRepository.findById(anyLong())).thenAnswer(invocation -> {
+            release.await();
+            return Optional.of(mockPerson);
+        });
+        when(personMapper.entityToResponseDto(mockPerson)).thenReturn(mockPersonResponseDto);
+        double coalescedBefore = coalescedProfileLoads();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            List<Future<PersonResponseDto>> futureList = IntStream.range(0, 4)
+                    .mapToObj(i -> executor.submit(() -> personService.getById(id)))
+                    .toList();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (coalescedProfileLoads() - coalescedBefore < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            for (Future<PersonResponseDto> future : futureList) {
+                assertEquals(mockPersonResponseDto, future.get(5, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(3, coalescedProfileLoads() - coalescedBefore);
+        verify(personRepository, times(1)).findById(id);
+    }
+
+    @Test
+    void getById_UpdateCommittedAfterLoad_DoesNotCacheStaleProfile() throws Exception {
+        when(personRepository.findById(anyLong())).thenReturn(Optional.of(mockPerson));
+        when(personRepository.save(any(Person.class))).thenReturn(mockPerson);
+        when(personMapper.entityToResponseDto(mockPerson)).thenReturn(mockPersonResponseDto);
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            // The update commits once the profile has been loaded and checked, before getById returns.
+            doAnswer(invocation -> {
+                Object profile = invocation.callRealMethod();
+                executor.submit(() -> personService.updateById(mockPersonRequestDto, id)).get(5, TimeUnit.SECONDS);
+                return profile;
+            }).when(singleFlight).execute(eq(CacheConfig.PERSON_PROFILES), eq("id:1"), any());
+
+            personService.getById(id);
+        }
+
+        assertNull(personProfilesCache().get("id:1"));
+    }
+
+    @Test
+    void updateById_EvictsCachedProfiles() {
+        when(personRepository.findById(anyLong())).thenReturn(Optional.of(mockPerson));
+        when(personRepository.findByName(anyString())).thenReturn(Optional.of(mockPerson));
+        when(personRepository.save(any(Person.class))).thenReturn(mockPerson);
+        when(personMapper.entityToResponseDto(mockPerson)).thenReturn(mockPersonResponseDto);
+        personService.getById(id);
+        personService.getByName(name);
+
+        personService.updateById(mockPersonRequestDto, id);
+
+        assertNull(personProfilesCache().get(STR."id:\{id}"));
+        assertNull(personProfilesCache().get(STR."name:\{name}"));
+    }
+
     @Test
     void updateByName() {
         when(personRepository.findByName(anyString())).thenReturn(Optional.of(mockPerson));
@@ -172,22 +293,59 @@ class PersonServiceImplTest {
         verify(personMapper).entityToResponseDto(mockPerson);
     }
 
+    @Test
+    void updateByIdAndIssueToken() {
+        when(personRepository.findById(anyLong())).thenReturn(Optional.of(mockPerson));
+        when(passwordEncoder.encode(anyString())).thenReturn("encoded");
+        when(personRepository.save(any(Person.class))).thenReturn(mockPerson);
+
+        JwtResponseDto jwtResponseDto = personService.updateByIdAndIssueToken(mockPersonRequestDto, id);
+
+        assertEquals(id, jwtUtil.verifyTokenAndGetPersonDetails(jwtResponseDto.getJsonWebToken()).getPerson().getId());
+        assertEquals("encoded", mockPerson.getPassword());
+        verify(personRepository).findById(id);
+        verify(personMapper).updateEntityFromRequestDto(mockPerson, mockPersonRequestDto);
+        verify(passwordEncoder).encode(mockPersonRequestDto.getPassword());
+        verify(passwordEncoder, never()).matches(any(), any());
+        verify(personRepository).save(mockPerson);
+    }
+
+    @Test
+    void suggestByNamePrefix_CreatedPerson_SuggestedAfterCommit() {
+        mockPerson.setName("Suggested");
+        when(personMapper.requestDtoToEntity(mockPersonRequestDto)).thenReturn(mockPerson);
+        when(personRepository.save(any(Person.class))).thenReturn(mockPerson);
+
+        personService.create(mockPersonRequestDto);
+        List<PersonSuggestionDto> suggestionList = personService.suggestByNamePrefix("sUGG", 10);
+
+        assertEquals(List.of(new PersonSuggestionDto(id, "Suggested")), suggestionList);
+        verify(personRepository, never()).findAllByNameContainingIgnoreCase(any(Pageable.class), anyString());
+    }
+
     @Test
     void deleteById() {
-        when(personRepository.existsById(anyLong())).thenReturn(true);
+        when(personRepository.softDeleteById(anyLong())).thenReturn(Optional.of(name));
+        personDetailsCache().put(name, new PersonDetails(mockPerson));
 
         personService.deleteById(id);
 
-        verify(personRepository).deleteById(id);
+        verify(personRepository).softDeleteById(id);
+        verify(personRepository).evictFromSecondLevelCache(id, name);
+        verify(personRepository, never()).findById(anyLong());
+        assertNull(personDetailsCache().get(name));
     }
 
     @Test
     void deleteByName() {
-        when(personRepository.existsByName(anyString())).thenReturn(true);
+        when(personRepository.softDeleteByName(anyString())).thenReturn(Optional.of(id));
+        personDetailsCache().put(name, new PersonDetails(mockPerson));
 
         personService.deleteByName(name);
 
-        verify(personRepository).deleteByName(name);
+        verify(personRepository).softDeleteByName(name);
+        verify(personRepository).evictFromSecondLevelCache(id, name);
+        assertNull(personDetailsCache().get(name));
     }
 
     @Test
@@ -196,6 +354,7 @@ class PersonServiceImplTest {
         when(passwordEncoder.matches(anyString(), anyString())).thenReturn(true);
         when(personRepository.save(any(Person.class))).thenReturn(mockPerson);
         when(personMapper.entityToResponseDto(mockPerson)).thenReturn(mockPersonResponseDto);
+        personDetailsCache().put(name, new PersonDetails(mockPerson));
 
         PersonResponseDto personResponseDto = personService.upgradeRole(name, id);
         assertEquals(UserRole.ROLE_ADMIN, mockPerson.getRole());
@@ -205,5 +364,18 @@ class PersonServiceImplTest {
         verify(passwordEncoder).matches(name, mockPerson.getPassword());
         verify(personRepository).save(mockPerson);
         verify(personMapper).entityToResponseDto(mockPerson);
+        assertNull(personDetailsCache().get(name));
+    }
+
+    private Cache personDetailsCache() {
+        return cacheManager.getCache(CacheConfig.PERSON_DETAILS);
+    }
+
+    private double coalescedProfileLoads() {
+        return meterRegistry.counter("single-flight.calls", "flight", CacheConfig.PERSON_PROFILES, "outcome", "coalesced").count();
+    }
+
+    private Cache personProfilesCache() {
+        return cacheManager.getCache(CacheConfig.PERSON_PROFILES);
     }
 }
\ No newline at end of file